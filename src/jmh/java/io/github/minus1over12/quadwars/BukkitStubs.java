@@ -0,0 +1,345 @@
+package io.github.minus1over12.quadwars;
+
+import net.kyori.adventure.text.Component;
+import org.bukkit.Bukkit;
+import org.bukkit.GameMode;
+import org.bukkit.Location;
+import org.bukkit.NamespacedKey;
+import org.bukkit.Server;
+import org.bukkit.World;
+import org.bukkit.WorldBorder;
+import org.bukkit.block.Block;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.damage.DamageSource;
+import org.bukkit.entity.Player;
+import org.bukkit.entity.Projectile;
+import org.bukkit.entity.TNTPrimed;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scoreboard.Scoreboard;
+import org.bukkit.scoreboard.ScoreboardManager;
+import org.bukkit.scoreboard.Team;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Just enough of the Bukkit API to run the plugin's hot paths outside a server. Everything is a
+ * {@link Proxy}, and any method that isn't stubbed returns a default value.
+ *
+ * @author War Pigeon
+ */
+enum BukkitStubs {
+    ;
+    
+    /**
+     * Installs the stub server, if it isn't already.
+     */
+    static synchronized void install() {
+        if (Bukkit.getServer() == null) {
+            Logger logger = Logger.getLogger("QuadWarsBenchmark");
+            ScoreboardManager scoreboardManager = scoreboardManager();
+            Bukkit.setServer(stub(Server.class, (proxy, method, args) -> switch (method.getName()) {
+                case "getLogger" -> logger;
+                case "createWorldBorder" -> worldBorder();
+                case "getScoreboardManager" -> scoreboardManager;
+                case "getOnlinePlayers" -> List.of();
+                default -> null;
+            }));
+        }
+    }
+    
+    /**
+     * Makes a plugin with the default config, for the controllers to read their settings from.
+     * Anything that schedules a task with it will fail.
+     *
+     * @return the plugin
+     */
+    static Plugin plugin() {
+        Logger logger = Logger.getLogger("QuadWarsBenchmark");
+        FileConfiguration config;
+        try (InputStream input = Objects.requireNonNull(
+                BukkitStubs.class.getResourceAsStream("/config.yml"), "No config.yml");
+             Reader reader = new InputStreamReader(input, StandardCharsets.UTF_8)) {
+            config = YamlConfiguration.loadConfiguration(reader);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return stub(Plugin.class, (proxy, method, args) -> switch (method.getName()) {
+            case "getLogger" -> logger;
+            case "getConfig" -> config;
+            case "getName" -> "QuadWars";
+            case "isEnabled" -> true;
+            default -> null;
+        });
+    }
+    
+    /**
+     * Makes a scoreboard manager whose main scoreboard has a team for every name it is asked for.
+     * The teams only know their display name, and have nobody on them.
+     *
+     * @return the scoreboard manager
+     */
+    private static ScoreboardManager scoreboardManager() {
+        Map<String, Team> teams = new ConcurrentHashMap<>();
+        Scoreboard scoreboard = stub(Scoreboard.class, (proxy, method, args) ->
+                "getTeam".equals(method.getName()) ?
+                        teams.computeIfAbsent((String) args[0], BukkitStubs::team) : null);
+        return stub(ScoreboardManager.class, (proxy, method, args) ->
+                "getMainScoreboard".equals(method.getName()) ? scoreboard : null);
+    }
+    
+    /**
+     * Makes a team.
+     *
+     * @param name the name of the team
+     * @return the team
+     */
+    private static Team team(String name) {
+        Component displayName = Component.text(name);
+        return stub(Team.class, (proxy, method, args) -> switch (method.getName()) {
+            case "getName" -> name;
+            case "displayName" -> displayName;
+            case "getEntries" -> Set.of();
+            default -> null;
+        });
+    }
+    
+    /**
+     * Makes a world.
+     *
+     * @param name            the name of the world
+     * @param coordinateScale the coordinate scale of the world, 1 for the Overworld and 8 for the
+     *                        Nether
+     * @return the world
+     */
+    static World world(String name, double coordinateScale) {
+        UUID uniqueId = UUID.nameUUIDFromBytes(name.getBytes());
+        WorldBorder worldBorder = worldBorder();
+        return stub(World.class, (proxy, method, args) -> switch (method.getName()) {
+            case "getName" -> name;
+            case "getUID" -> uniqueId;
+            case "getKey" -> NamespacedKey.minecraft(name);
+            case "getCoordinateScale" -> coordinateScale;
+            case "getEnvironment" -> coordinateScale == 1 ? World.Environment.NORMAL :
+                    World.Environment.NETHER;
+            case "getWorldBorder" -> worldBorder;
+            default -> null;
+        });
+    }
+    
+    /**
+     * Makes a world border that remembers what it is set to.
+     *
+     * @return the world border
+     */
+    static WorldBorder worldBorder() {
+        Map<String, Object> values = new HashMap<>();
+        return stub(WorldBorder.class, (proxy, method, args) -> {
+            String name = method.getName();
+            if (name.startsWith("set") && args != null && args.length == 1) {
+                values.put(name.substring(3), args[0]);
+                return null;
+            }
+            if (name.startsWith("get")) {
+                return values.get(name.substring(3));
+            }
+            return null;
+        });
+    }
+    
+    /**
+     * Makes a player standing at a location.
+     *
+     * @param uniqueId    the UUID of the player
+     * @param location    where the player is
+     * @param worldBorder the world border the player sees
+     * @return the player
+     */
+    static Player player(UUID uniqueId, Location location, WorldBorder worldBorder) {
+        return stub(Player.class, (proxy, method, args) -> switch (method.getName()) {
+            case "getUniqueId" -> uniqueId;
+            case "getWorld" -> location.getWorld();
+            case "getLocation" -> args == null ? location.clone() :
+                    copyLocation(location, (Location) args[0]);
+            case "getWorldBorder" -> worldBorder;
+            case "getGameMode" -> GameMode.SURVIVAL;
+            case "isOnline", "isValid" -> true;
+            default -> null;
+        });
+    }
+    
+    /**
+     * Makes a block. Like the real thing, it makes a new location each time it is asked for one.
+     *
+     * @param world the world the block is in
+     * @param x     the x coordinate of the block
+     * @param y     the y coordinate of the block
+     * @param z     the z coordinate of the block
+     * @return the block
+     */
+    static Block block(World world, int x, int y, int z) {
+        return stub(Block.class, (proxy, method, args) -> switch (method.getName()) {
+            case "getWorld" -> world;
+            case "getX" -> x;
+            case "getY" -> y;
+            case "getZ" -> z;
+            case "getLocation" -> new Location(world, x, y, z);
+            default -> null;
+        });
+    }
+    
+    /**
+     * Makes a block's inventory. Like the real thing, it makes a new location each time it is
+     * asked for one.
+     *
+     * @param world the world the block is in
+     * @param x     the x coordinate of the block
+     * @param y     the y coordinate of the block
+     * @param z     the z coordinate of the block
+     * @return the inventory
+     */
+    static Inventory inventory(World world, int x, int y, int z) {
+        return stub(Inventory.class, (proxy, method, args) ->
+                "getLocation".equals(method.getName()) ? new Location(world, x, y, z) : null);
+    }
+    
+    /**
+     * Makes a projectile.
+     *
+     * @param origin   where the projectile was launched from
+     * @param location where the projectile is now
+     * @return the projectile
+     */
+    static Projectile projectile(Location origin, Location location) {
+        return stub(Projectile.class, (proxy, method, args) -> switch (method.getName()) {
+            case "getOrigin" -> origin.clone();
+            case "getWorld" -> location.getWorld();
+            case "getLocation" -> location.clone();
+            default -> null;
+        });
+    }
+    
+    /**
+     * Makes a primed TNT.
+     *
+     * @param origin   where the TNT was primed
+     * @param location where the TNT is now
+     * @return the TNT
+     */
+    static TNTPrimed tnt(Location origin, Location location) {
+        return stub(TNTPrimed.class, (proxy, method, args) -> switch (method.getName()) {
+            case "getOrigin" -> origin.clone();
+            case "getWorld" -> location.getWorld();
+            case "getLocation" -> location.clone();
+            default -> null;
+        });
+    }
+    
+    /**
+     * Makes a damage source. Nothing about it is stubbed.
+     *
+     * @return the damage source
+     */
+    static DamageSource damageSource() {
+        return stub(DamageSource.class, (proxy, method, args) -> null);
+    }
+    
+    /**
+     * Makes a world border controller for a single world. Anything that schedules a task will
+     * fail.
+     *
+     * @param plugin     the plugin to read the config from
+     * @param gameState  the phase the controller is in
+     * @param world      the world
+     * @param membership the team index
+     * @return the controller
+     */
+    static WorldBorderController worldBorderController(Plugin plugin, GameState gameState,
+                                                       World world,
+                                                       QuadrantMembership membership) {
+        return new WorldBorderController(plugin, gameState, new HandlerMetrics(false), Set.of(),
+                membership, new SpawnPrewarmer(plugin, world), null, List.of(world));
+    }
+    
+    /**
+     * Copies a location into another one, like
+     * {@link org.bukkit.entity.Entity#getLocation(Location)}.
+     *
+     * @param source the location to copy
+     * @param target the location to copy into
+     * @return the target
+     */
+    private static Location copyLocation(Location source, Location target) {
+        target.setWorld(source.getWorld());
+        target.set(source.getX(), source.getY(), source.getZ());
+        return target;
+    }
+    
+    /**
+     * Makes a stub of an interface. Methods the handler returns null for return a default value
+     * instead, so primitive methods don't throw.
+     *
+     * @param type    the interface to stub
+     * @param handler handles the stubbed methods
+     * @param <T>     the type of the interface
+     * @return the stub
+     */
+    private static <T> T stub(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(BukkitStubs.class.getClassLoader(),
+                new Class<?>[]{type}, (proxy, method, args) -> switch (method.getName()) {
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "toString" -> type.getSimpleName() + "Stub";
+                    default -> {
+                        Object result = handler.invoke(proxy, method, args);
+                        yield result != null ? result : defaultValue(method);
+                    }
+                }));
+    }
+    
+    /**
+     * Gets the default value for a method's return type.
+     *
+     * @param method the method
+     * @return zero or false for primitives, and null for everything else
+     */
+    private static Object defaultValue(Method method) {
+        Class<?> type = method.getReturnType();
+        if (!type.isPrimitive() || type == void.class) {
+            return null;
+        } else if (type == boolean.class) {
+            return false;
+        } else if (type == char.class) {
+            return '\0';
+        } else if (type == byte.class) {
+            return (byte) 0;
+        } else if (type == short.class) {
+            return (short) 0;
+        } else if (type == int.class) {
+            return 0;
+        } else if (type == long.class) {
+            return 0L;
+        } else if (type == float.class) {
+            return 0f;
+        } else {
+            return 0d;
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package io.github.minus1over12.quadwars;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.block.BlockFace;
+import org.bukkit.entity.Player;
+import org.bukkit.event.block.BlockPistonExtendEvent;
+import org.bukkit.event.entity.ProjectileHitEvent;
+import org.bukkit.event.player.PlayerMoveEvent;
+import org.bukkit.plugin.Plugin;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the prep phase rules in {@link WorldBorderController} that run for every move,
+ * piston, and projectile.
+ *
+ * @author War Pigeon
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventHandlerBenchmark {
+    /**
+     * The number of players to cycle through. A power of two so the index can be masked.
+     */
+    private static final int PLAYERS = 64;
+    /**
+     * The default quadrant size from the config.
+     */
+    private static final double WORLD_BORDER_SIZE = 25000;
+    /**
+     * The coordinate scale of the world: 1 for the Overworld, 8 for the Nether.
+     */
+    @Param({"1", "8"})
+    public double coordinateScale;
+    /**
+     * The prep phase rules being measured.
+     */
+    private WorldBorderController.PrepRules rules;
+    /**
+     * Moves that stay well inside each player's quadrant, going back and forth.
+     */
+    private final PlayerMoveEvent[] interiorMoves = new PlayerMoveEvent[PLAYERS * 2];
+    /**
+     * Moves right next to the inner edge of each player's quadrant, where every move needs a full
+     * check.
+     */
+    private final PlayerMoveEvent[] edgeMoves = new PlayerMoveEvent[PLAYERS * 2];
+    /**
+     * Pistons inside a quadrant.
+     */
+    private final BlockPistonExtendEvent[] insidePistons = new BlockPistonExtendEvent[PLAYERS];
+    /**
+     * Pistons on the axis, outside every quadrant.
+     */
+    private final BlockPistonExtendEvent[] outsidePistons = new BlockPistonExtendEvent[PLAYERS];
+    /**
+     * Projectiles landing in the quadrant they were fired from.
+     */
+    private final ProjectileHitEvent[] projectileHits = new ProjectileHitEvent[PLAYERS];
+    /**
+     * The next event to use.
+     */
+    private int index;
+    
+    /**
+     * Builds the prep phase rules against the stub server, and the events to feed them.
+     */
+    @Setup
+    public void setUp() {
+        BukkitStubs.install();
+        Plugin plugin = BukkitStubs.plugin();
+        World world = BukkitStubs.world("world", coordinateScale);
+        BorderGeometry geometry = BorderGeometry.build(List.of(world), WORLD_BORDER_SIZE);
+        QuadrantMembership membership = new QuadrantMembership(plugin);
+        rules = BukkitStubs.worldBorderController(plugin, GameState.PREP, world, membership)
+                .getPrepRules();
+        
+        double innerEdge = WorldBorderController.AXIS_BUFFER_OFFSET / coordinateScale;
+        double middle = innerEdge + WORLD_BORDER_SIZE / coordinateScale / 2;
+        Quadrant[] values = Quadrant.values();
+        for (int i = 0; i < PLAYERS; i++) {
+            Quadrant quadrant = values[i % values.length];
+            int xSign = quadrant.xSign;
+            int zSign = quadrant.zSign;
+            double z = zSign * (middle + i);
+            UUID uniqueId = new UUID(0, i);
+            
+            Location interiorA = new Location(world, xSign * (middle + i), 64, z);
+            Location interiorB = interiorA.clone().add(xSign, 0, 0);
+            Player interiorPlayer = BukkitStubs.player(uniqueId, interiorA,
+                    geometry.get(world, quadrant).getWorldBorder());
+            membership.set(interiorPlayer, quadrant);
+            interiorMoves[i * 2] = new PlayerMoveEvent(interiorPlayer, interiorA, interiorB);
+            interiorMoves[i * 2 + 1] = new PlayerMoveEvent(interiorPlayer, interiorB, interiorA);
+            
+            UUID edgeId = new UUID(1, i);
+            Location edgeA = new Location(world, xSign * (innerEdge + 0.6), 64, z);
+            Location edgeB = new Location(world, xSign * (innerEdge + 1.4), 64, z);
+            Player edgePlayer = BukkitStubs.player(edgeId, edgeA,
+                    geometry.get(world, quadrant).getWorldBorder());
+            membership.set(edgePlayer, quadrant);
+            edgeMoves[i * 2] = new PlayerMoveEvent(edgePlayer, edgeA, edgeB);
+            edgeMoves[i * 2 + 1] = new PlayerMoveEvent(edgePlayer, edgeB, edgeA);
+            
+            insidePistons[i] = new BlockPistonExtendEvent(
+                    BukkitStubs.block(world, interiorA.getBlockX(), 64, interiorA.getBlockZ()),
+                    List.of(), BlockFace.NORTH);
+            outsidePistons[i] = new BlockPistonExtendEvent(
+                    BukkitStubs.block(world, 0, 64, interiorA.getBlockZ()), List.of(),
+                    BlockFace.NORTH);
+            projectileHits[i] = new ProjectileHitEvent(
+                    BukkitStubs.projectile(interiorA, interiorB), null, null, null);
+        }
+    }
+    
+    /**
+     * Gets the next event index.
+     *
+     * @param length the number of events
+     * @return the index
+     */
+    private int next(int length) {
+        return index = (index + 1) & (length - 1);
+    }
+    
+    /**
+     * Moves that the move budget should let through without a border check.
+     *
+     * @return the event
+     */
+    @Benchmark
+    public PlayerMoveEvent playerMoveInterior() {
+        PlayerMoveEvent event = interiorMoves[next(interiorMoves.length)];
+        rules.onPlayerMove(event);
+        return event;
+    }
+    
+    /**
+     * Moves along the edge, which always need a full check.
+     *
+     * @return the event
+     */
+    @Benchmark
+    public PlayerMoveEvent playerMoveEdge() {
+        PlayerMoveEvent event = edgeMoves[next(edgeMoves.length)];
+        rules.onPlayerMove(event);
+        return event;
+    }
+    
+    /**
+     * A piston inside a quadrant, which is allowed after finding its quadrant.
+     *
+     * @return the event
+     */
+    @Benchmark
+    public BlockPistonExtendEvent pistonInside() {
+        BlockPistonExtendEvent event = insidePistons[next(insidePistons.length)];
+        rules.onBlockPistonEvent(event);
+        return event;
+    }
+    
+    /**
+     * A piston on the axis, which has to be checked against every quadrant before it is cancelled.
+     *
+     * @return the event
+     */
+    @Benchmark
+    public BlockPistonExtendEvent pistonOutside() {
+        BlockPistonExtendEvent event = outsidePistons[next(outsidePistons.length)];
+        rules.onBlockPistonEvent(event);
+        return event;
+    }
+    
+    /**
+     * A projectile landing in the quadrant it came from.
+     *
+     * @return the event
+     */
+    @Benchmark
+    public ProjectileHitEvent projectileHit() {
+        ProjectileHitEvent event = projectileHits[next(projectileHits.length)];
+        rules.onProjectileHitEvent(event);
+        return event;
+    }
+}
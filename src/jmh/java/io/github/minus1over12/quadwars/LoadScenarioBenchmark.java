@@ -0,0 +1,348 @@
+package io.github.minus1over12.quadwars;
+
+import net.kyori.adventure.text.Component;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
+import org.bukkit.entity.Player;
+import org.bukkit.event.block.BlockFromToEvent;
+import org.bukkit.event.block.BlockPistonExtendEvent;
+import org.bukkit.event.entity.EntityExplodeEvent;
+import org.bukkit.event.entity.PlayerDeathEvent;
+import org.bukkit.event.inventory.InventoryMoveItemEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerMoveEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.plugin.Plugin;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Plays out one server tick of a busy game for each scenario, with every player doing the same
+ * thing at once. Each benchmark calls the handlers of one listener in
+ * {@link WorldBorderController}, {@link TeamController}, or {@link PlayerController} the same way
+ * the server would, so a regression shows up against the listener that caused it. The time and
+ * allocation of each tick are checked against the budgets in {@code src/jmh/budgets.properties}
+ * by the {@code jmhBudgetCheck} task.
+ *
+ * @author War Pigeon
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoadScenarioBenchmark {
+    /**
+     * The default quadrant size from the config.
+     */
+    private static final double WORLD_BORDER_SIZE = 25000;
+    /**
+     * How many blocks each explosion would destroy: a 3 by 3 by 3 cube.
+     */
+    private static final int EXPLOSION_SIZE = 3;
+    /**
+     * The number of players in the game.
+     */
+    @Param({"4", "40", "400"})
+    public int playerCount;
+    /**
+     * The prep phase rules of the world border controller.
+     */
+    private WorldBorderController.PrepRules prepRules;
+    /**
+     * The world border controller, in the battle phase.
+     */
+    private WorldBorderController battleWorldBorderController;
+    /**
+     * The team controller, in the battle phase of a hardcore game.
+     */
+    private TeamController teamController;
+    /**
+     * The player controller, in the battle phase of a hardcore game that kills players who quit.
+     */
+    private PlayerController playerController;
+    /**
+     * Each player taking a step along the axis next to their quadrant's inner edge.
+     */
+    private PlayerMoveEvent[] forwardMoves;
+    /**
+     * Each player stepping back again.
+     */
+    private PlayerMoveEvent[] backMoves;
+    /**
+     * A piston firing on each player's farm. Farms alternate between just inside the quadrant and
+     * just over the edge onto the axis.
+     */
+    private BlockPistonExtendEvent[] pistons;
+    /**
+     * Lava flowing one block towards the axis on each player's farm, alternating like the pistons
+     * so half of them cross the edge.
+     */
+    private BlockFromToEvent[] flows;
+    /**
+     * A hopper on each player's farm passing an item towards the axis, alternating like the
+     * pistons.
+     */
+    private InventoryMoveItemEvent[] hoppers;
+    /**
+     * A TNT going off on each player's farm, alternating like the pistons.
+     */
+    private EntityExplodeEvent[] explosions;
+    /**
+     * The blocks each explosion destroys before the rules trim them, to put back each tick.
+     */
+    private List<List<Block>> explodedBlocks;
+    /**
+     * Each player dying.
+     */
+    private PlayerDeathEvent[] deaths;
+    /**
+     * Each player quitting.
+     */
+    private PlayerQuitEvent[] quits;
+    /**
+     * Each player joining again.
+     */
+    private PlayerJoinEvent[] joins;
+    /**
+     * Whether the next movement tick steps back.
+     */
+    private boolean stepBack;
+    
+    /**
+     * Builds the controllers against the stub server, puts the players on teams, and makes the
+     * events for every scenario.
+     */
+    @Setup
+    public void setUp() {
+        BukkitStubs.install();
+        Plugin plugin = BukkitStubs.plugin();
+        World world = BukkitStubs.world("world", 1);
+        BorderGeometry geometry = BorderGeometry.build(List.of(world), WORLD_BORDER_SIZE);
+        QuadrantMembership membership = new QuadrantMembership(plugin);
+        prepRules = BukkitStubs.worldBorderController(plugin, GameState.PREP, world, membership)
+                .getPrepRules();
+        battleWorldBorderController =
+                BukkitStubs.worldBorderController(plugin, GameState.BATTLE, world, membership);
+        teamController = new TeamController(plugin.getLogger(), GameState.BATTLE, true,
+                membership, new SpawnPrewarmer(plugin, world),
+                new TeleportScheduler(plugin, membership, new HandlerMetrics(false)));
+        playerController = new PlayerController(GameState.BATTLE, true, true);
+        
+        forwardMoves = new PlayerMoveEvent[playerCount];
+        backMoves = new PlayerMoveEvent[playerCount];
+        pistons = new BlockPistonExtendEvent[playerCount];
+        flows = new BlockFromToEvent[playerCount];
+        hoppers = new InventoryMoveItemEvent[playerCount];
+        explosions = new EntityExplodeEvent[playerCount];
+        explodedBlocks = new ArrayList<>(playerCount);
+        deaths = new PlayerDeathEvent[playerCount];
+        quits = new PlayerQuitEvent[playerCount];
+        joins = new PlayerJoinEvent[playerCount];
+        double innerEdge = WorldBorderController.AXIS_BUFFER_OFFSET;
+        Quadrant[] values = Quadrant.values();
+        for (int i = 0; i < playerCount; i++) {
+            Quadrant quadrant = values[i % values.length];
+            int xSign = quadrant.xSign;
+            int zSign = quadrant.zSign;
+            UUID uniqueId = new UUID(0, i);
+            
+            double x = xSign * (innerEdge + 0.6);
+            double z = zSign * (innerEdge + 16 + i);
+            Location from = new Location(world, x, 64, z);
+            Location to = new Location(world, x, 64, z + zSign);
+            Player player = BukkitStubs.player(uniqueId, from,
+                    geometry.get(world, quadrant).getWorldBorder());
+            membership.set(player, quadrant);
+            forwardMoves[i] = new PlayerMoveEvent(player, from, to);
+            backMoves[i] = new PlayerMoveEvent(player, to, from);
+            
+            // Odd farms are built one block too far, on the axis.
+            int farmX = xSign * ((int) innerEdge + (i % 2 == 0 ? 2 : -1));
+            int farmZ = (int) z;
+            pistons[i] = new BlockPistonExtendEvent(BukkitStubs.block(world, farmX, 64, farmZ),
+                    List.of(), BlockFace.EAST);
+            int flowX = xSign * ((int) innerEdge + (i % 2 == 0 ? 1 : 0));
+            flows[i] = new BlockFromToEvent(BukkitStubs.block(world, flowX, 64, farmZ),
+                    BukkitStubs.block(world, flowX - xSign, 64, farmZ));
+            Inventory hopper = BukkitStubs.inventory(world, flowX, 64, farmZ);
+            hoppers[i] = new InventoryMoveItemEvent(hopper, new ItemStack(Material.COBBLESTONE),
+                    BukkitStubs.inventory(world, flowX - xSign, 64, farmZ), true);
+            Location origin = new Location(world, xSign * (innerEdge + 4), 64, farmZ);
+            Location blast = new Location(world, farmX, 64, farmZ);
+            List<Block> blocks = explodedBlocks(world, farmX, farmZ);
+            explodedBlocks.add(blocks);
+            explosions[i] = new EntityExplodeEvent(BukkitStubs.tnt(origin, blast), blast,
+                    new ArrayList<>(blocks), 1);
+            
+            deaths[i] = new PlayerDeathEvent(player, BukkitStubs.damageSource(), new ArrayList<>(),
+                    0, (Component) null);
+            quits[i] = new PlayerQuitEvent(player, (Component) null,
+                    PlayerQuitEvent.QuitReason.DISCONNECTED);
+            joins[i] = new PlayerJoinEvent(player, (Component) null);
+            // Count the player as alive, like they were when the battle phase started.
+            teamController.onPlayerJoin(joins[i]);
+        }
+    }
+    
+    /**
+     * Makes the blocks an explosion would destroy.
+     *
+     * @param world the world the explosion is in
+     * @param x     the x coordinate of the middle of the explosion
+     * @param z     the z coordinate of the middle of the explosion
+     * @return the blocks
+     */
+    private static List<Block> explodedBlocks(World world, int x, int z) {
+        List<Block> blocks = new ArrayList<>(EXPLOSION_SIZE * EXPLOSION_SIZE * EXPLOSION_SIZE);
+        int offset = EXPLOSION_SIZE / 2;
+        for (int dx = -offset; dx <= offset; dx++) {
+            for (int dy = -offset; dy <= offset; dy++) {
+                for (int dz = -offset; dz <= offset; dz++) {
+                    blocks.add(BukkitStubs.block(world, x + dx, 64 + dy, z + dz));
+                }
+            }
+        }
+        return blocks;
+    }
+    
+    /**
+     * Every player walking along the axis at the inner edge of their quadrant in the prep phase,
+     * where every step needs a full border check.
+     */
+    @Benchmark
+    public void prepAxisMovement() {
+        PlayerMoveEvent[] moves = stepBack ? backMoves : forwardMoves;
+        stepBack = !stepBack;
+        for (PlayerMoveEvent move : moves) {
+            prepRules.onPlayerMove(move);
+        }
+    }
+    
+    /**
+     * A piston firing on every player's farm in the prep phase.
+     */
+    @Benchmark
+    public void prepPistonFarms() {
+        for (BlockPistonExtendEvent piston : pistons) {
+            prepRules.onBlockPistonEvent(piston);
+        }
+    }
+    
+    /**
+     * Lava flowing on every player's farm in the prep phase. Events are only cancelled, never
+     * uncancelled, so the ones that crossed are uncancelled again for the next tick.
+     */
+    @Benchmark
+    public void prepFluidFlows() {
+        for (BlockFromToEvent flow : flows) {
+            prepRules.onBlockFromTo(flow);
+            flow.setCancelled(false);
+        }
+    }
+    
+    /**
+     * A hopper passing an item on every player's farm in the prep phase, uncancelled again for
+     * the next tick like the fluid flows.
+     */
+    @Benchmark
+    public void prepHopperChains() {
+        for (InventoryMoveItemEvent hopper : hoppers) {
+            prepRules.onInventoryMoveItem(hopper);
+            hopper.setCancelled(false);
+        }
+    }
+    
+    /**
+     * A TNT going off on every player's farm in the prep phase. The rules trim the block list and
+     * may cancel the event, so both are put back first for every tick to start from the same
+     * explosion.
+     */
+    @Benchmark
+    public void prepExplosions() {
+        for (int i = 0; i < playerCount; i++) {
+            EntityExplodeEvent explosion = explosions[i];
+            List<Block> blockList = explosion.blockList();
+            blockList.clear();
+            blockList.addAll(explodedBlocks.get(i));
+            explosion.setCancelled(false);
+            prepRules.onEntityExplodeEvent(explosion);
+        }
+    }
+    
+    /**
+     * Every player dying in the battle phase, as seen by the player controller.
+     */
+    @Benchmark
+    public void battleDeathsPlayerController() {
+        for (PlayerDeathEvent death : deaths) {
+            playerController.onPlayerDeath(death);
+        }
+    }
+    
+    /**
+     * Every player dying in the battle phase, as seen by the team controller, then being counted
+     * as alive again so the game never ends. With four players, every death eliminates a team.
+     */
+    @Benchmark
+    public void battleDeathsTeamController() {
+        for (int i = 0; i < playerCount; i++) {
+            teamController.onPlayerDeath(deaths[i]);
+            teamController.onPlayerJoin(joins[i]);
+        }
+    }
+    
+    /**
+     * Every player quitting in the battle phase, as seen by the world border controller.
+     */
+    @Benchmark
+    public void battleQuitsWorldBorderController() {
+        for (PlayerQuitEvent quit : quits) {
+            battleWorldBorderController.onPlayerQuit(quit);
+        }
+    }
+    
+    /**
+     * Every player quitting in the battle phase and joining again, as seen by the player
+     * controller.
+     */
+    @Benchmark
+    public void battleQuitsPlayerController() {
+        for (int i = 0; i < playerCount; i++) {
+            playerController.onPlayerQuit(quits[i]);
+            playerController.onPlayerJoin(joins[i]);
+        }
+    }
+    
+    /**
+     * Every player quitting in the battle phase and joining again, as seen by the team
+     * controller.
+     */
+    @Benchmark
+    public void battleQuitsTeamController() {
+        for (int i = 0; i < playerCount; i++) {
+            teamController.onPlayerQuit(quits[i]);
+            teamController.onPlayerJoin(joins[i]);
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package io.github.minus1over12.quadwars;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the border geometry that the event handlers lean on.
+ *
+ * @author War Pigeon
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QuadrantGeometryBenchmark {
+    /**
+     * The number of sample points to cycle through. A power of two so the index can be masked.
+     */
+    private static final int SAMPLES = 1024;
+    /**
+     * The default quadrant size from the config.
+     */
+    private static final double WORLD_BORDER_SIZE = 25000;
+    /**
+     * The coordinate scale of the world: 1 for the Overworld, 8 for the Nether.
+     */
+    @Param({"1", "8"})
+    public double coordinateScale;
+    /**
+     * The world the samples are in.
+     */
+    private World world;
+    /**
+     * The border table for the world.
+     */
+    private BorderGeometry geometry;
+    /**
+     * The border for the first quadrant, used by the single border benchmarks.
+     */
+    private QuadrantBorder border;
+    /**
+     * The chunk classification for the world.
+     */
+    private ChunkClassification chunks;
+    /**
+     * The sample x coordinates.
+     */
+    private final double[] xs = new double[SAMPLES];
+    /**
+     * The sample z coordinates.
+     */
+    private final double[] zs = new double[SAMPLES];
+    /**
+     * The sample points as locations.
+     */
+    private final Location[] locations = new Location[SAMPLES];
+    /**
+     * The quadrant to use with each sample.
+     */
+    private final Quadrant[] quadrants = new Quadrant[SAMPLES];
+    /**
+     * The next sample to use.
+     */
+    private int index;
+    
+    /**
+     * Builds the world and the samples. The samples cover the whole playable area and a bit past
+     * it, so both sides of every edge get checked.
+     */
+    @Setup
+    public void setUp() {
+        BukkitStubs.install();
+        world = BukkitStubs.world("world", coordinateScale);
+        geometry = BorderGeometry.build(List.of(world), WORLD_BORDER_SIZE);
+        border = geometry.get(world, Quadrant.NE);
+        chunks = geometry.getChunks(world);
+        double extent = (WORLD_BORDER_SIZE + WorldBorderController.AXIS_BUFFER_OFFSET * 2) /
+                coordinateScale;
+        SplittableRandom random = new SplittableRandom(42);
+        Quadrant[] values = Quadrant.values();
+        for (int i = 0; i < SAMPLES; i++) {
+            xs[i] = random.nextDouble(-extent, extent);
+            zs[i] = random.nextDouble(-extent, extent);
+            locations[i] = new Location(world, xs[i], 64, zs[i]);
+            quadrants[i] = values[random.nextInt(values.length)];
+        }
+    }
+    
+    /**
+     * Gets the next sample index.
+     *
+     * @return the index
+     */
+    private int next() {
+        return index = (index + 1) & (SAMPLES - 1);
+    }
+    
+    /**
+     * The raw containment check.
+     *
+     * @return whether the sample is inside
+     */
+    @Benchmark
+    public boolean containment() {
+        int i = next();
+        return QuadrantContainment.isInside(xs[i], zs[i], coordinateScale, quadrants[i],
+                WORLD_BORDER_SIZE);
+    }
+    
+    /**
+     * The distance check used for move budgets and damage.
+     *
+     * @return the distance to the edge
+     */
+    @Benchmark
+    public double signedDistance() {
+        int i = next();
+        return QuadrantContainment.signedDistance(xs[i], zs[i], coordinateScale, quadrants[i],
+                WORLD_BORDER_SIZE);
+    }
+    
+    /**
+     * Checking a location against a cached border.
+     *
+     * @return whether the sample is inside
+     */
+    @Benchmark
+    public boolean borderIsInside() {
+        return border.isInside(locations[next()]);
+    }
+    
+    /**
+     * Finding the quadrant a sample's chunk is entirely inside, which lets the guards skip the
+     * containment math.
+     *
+     * @return the quadrant, or null if the chunk straddles an edge or is in the buffer
+     */
+    @Benchmark
+    public Quadrant chunkQuadrant() {
+        Location location = locations[next()];
+        return chunks.getQuadrantAt(location.getBlockX(), location.getBlockZ());
+    }
+    
+    /**
+     * Looking a border up in the table.
+     *
+     * @return the border
+     */
+    @Benchmark
+    public QuadrantBorder geometryLookup() {
+        return geometry.get(world, quadrants[next()]);
+    }
+    
+    /**
+     * Working out which quadrant a location is in.
+     *
+     * @return the quadrant
+     */
+    @Benchmark
+    public Quadrant quadrantFromLocation() {
+        return WorldBorderController.getQuadrantFromLocation(locations[next()]);
+    }
+    
+    /**
+     * Building a border from scratch, which is what every check used to do before the table.
+     *
+     * @return the border
+     */
+    @Benchmark
+    public QuadrantBorder buildBorder() {
+        return QuadrantBorder.of(world, quadrants[next()], WORLD_BORDER_SIZE);
+    }
+}
@@ -0,0 +1,98 @@
+package io.github.minus1over12.quadwars;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Keeps a running count of the alive players on each team, so checking if a team has been
+ * eliminated or has won doesn't require going through every player. Only use this from the main
+ * thread.
+ *
+ * @author War Pigeon
+ */
+final class AliveTeamTracker {
+    /**
+     * The quadrant each alive player is counted in.
+     */
+    private final Map<UUID, Quadrant> alivePlayers = new HashMap<>();
+    /**
+     * The number of alive players in each quadrant, indexed by ordinal.
+     */
+    private final int[] aliveCounts = new int[Quadrant.values().length];
+    /**
+     * The number of quadrants with at least one alive player.
+     */
+    private int aliveQuadrants;
+    
+    /**
+     * Updates whether a player is alive.
+     *
+     * @param uniqueId the UUID of the player
+     * @param quadrant the quadrant the player is alive in, or null if they are not alive
+     */
+    void set(@NotNull UUID uniqueId, @Nullable Quadrant quadrant) {
+        Quadrant previous = quadrant == null ? alivePlayers.remove(uniqueId) :
+                alivePlayers.put(uniqueId, quadrant);
+        if (previous != quadrant) {
+            if (previous != null && --aliveCounts[previous.ordinal()] == 0) {
+                aliveQuadrants--;
+            }
+            if (quadrant != null && aliveCounts[quadrant.ordinal()]++ == 0) {
+                aliveQuadrants++;
+            }
+        }
+    }
+    
+    /**
+     * Replaces all the counts.
+     *
+     * @param players the quadrant of every alive player
+     */
+    void reset(@NotNull Map<UUID, Quadrant> players) {
+        alivePlayers.clear();
+        aliveQuadrants = 0;
+        for (Quadrant quadrant : Quadrant.values()) {
+            aliveCounts[quadrant.ordinal()] = 0;
+        }
+        for (Map.Entry<UUID, Quadrant> entry : players.entrySet()) {
+            set(entry.getKey(), entry.getValue());
+        }
+    }
+    
+    /**
+     * Gets the number of alive players in a quadrant.
+     *
+     * @param quadrant the quadrant to get the count for
+     * @return the number of alive players
+     */
+    int getAliveCount(@NotNull Quadrant quadrant) {
+        return aliveCounts[quadrant.ordinal()];
+    }
+    
+    /**
+     * Gets the number of quadrants that still have alive players.
+     *
+     * @return the number of quadrants
+     */
+    int getAliveQuadrantCount() {
+        return aliveQuadrants;
+    }
+    
+    /**
+     * Gets the first quadrant that still has alive players.
+     *
+     * @return the quadrant, or null if every team is out
+     */
+    @Nullable Quadrant getAnyAliveQuadrant() {
+        for (Quadrant quadrant : Quadrant.values()) {
+            if (aliveCounts[quadrant.ordinal()] > 0) {
+                return quadrant;
+            }
+        }
+        return null;
+    }
+}
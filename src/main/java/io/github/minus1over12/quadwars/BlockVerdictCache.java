@@ -0,0 +1,156 @@
+package io.github.minus1over12.quadwars;
+
+import java.util.Arrays;
+
+/**
+ * Remembers whether item transfers at a block are safe, keyed by the block's packed position. The
+ * keys are kept in a plain array with linear probing, so looking one up doesn't box it or make any
+ * other objects.
+ *
+ * @author War Pigeon
+ */
+final class BlockVerdictCache {
+    /**
+     * The verdict for a block that hasn't been checked yet.
+     */
+    static final byte UNKNOWN = 0;
+    /**
+     * The verdict for a block where nothing can reach past the edge of its quadrant.
+     */
+    static final byte SAFE = 1;
+    /**
+     * The verdict for a block close enough to an edge that each transfer has to be checked.
+     */
+    static final byte UNSAFE = 2;
+    /**
+     * The number of slots the cache starts with.
+     */
+    private static final int INITIAL_CAPACITY = 256;
+    /**
+     * The most slots the cache grows to. Once it would need more, it is emptied instead.
+     */
+    private static final int MAX_CAPACITY = 1 << 16;
+    /**
+     * The packed position of the block in each slot.
+     */
+    private long[] keys = new long[INITIAL_CAPACITY];
+    /**
+     * The verdict in each slot, or {@link #UNKNOWN} if the slot is empty.
+     */
+    private byte[] verdicts = new byte[INITIAL_CAPACITY];
+    /**
+     * The number of verdicts in the cache.
+     */
+    private int size;
+    
+    /**
+     * Gets the verdict for a block.
+     *
+     * @param key the packed position of the block
+     * @return the verdict, or {@link #UNKNOWN} if there isn't one
+     */
+    byte get(long key) {
+        int mask = keys.length - 1;
+        for (int slot = slotOf(key, mask); verdicts[slot] != UNKNOWN; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return verdicts[slot];
+            }
+        }
+        return UNKNOWN;
+    }
+    
+    /**
+     * Stores the verdict for a block.
+     *
+     * @param key     the packed position of the block
+     * @param verdict {@link #SAFE} or {@link #UNSAFE}
+     */
+    void put(long key, byte verdict) {
+        if ((size + 1) * 4 > keys.length * 3) {
+            if (keys.length < MAX_CAPACITY) {
+                resize(keys.length * 2);
+            } else {
+                clear();
+            }
+        }
+        int mask = keys.length - 1;
+        int slot = slotOf(key, mask);
+        while (verdicts[slot] != UNKNOWN) {
+            if (keys[slot] == key) {
+                verdicts[slot] = verdict;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        verdicts[slot] = verdict;
+        size++;
+    }
+    
+    /**
+     * Forgets the verdict for a block, if there is one.
+     *
+     * @param key the packed position of the block
+     */
+    void remove(long key) {
+        int mask = keys.length - 1;
+        int slot = slotOf(key, mask);
+        while (verdicts[slot] != UNKNOWN) {
+            if (keys[slot] == key) {
+                // Move later entries back into the gap, so lookups don't stop early.
+                int gap = slot;
+                for (int next = (gap + 1) & mask; verdicts[next] != UNKNOWN;
+                     next = (next + 1) & mask) {
+                    int home = slotOf(keys[next], mask);
+                    if (((next - home) & mask) >= ((next - gap) & mask)) {
+                        keys[gap] = keys[next];
+                        verdicts[gap] = verdicts[next];
+                        gap = next;
+                    }
+                }
+                verdicts[gap] = UNKNOWN;
+                size--;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+    
+    /**
+     * Forgets every verdict.
+     */
+    void clear() {
+        Arrays.fill(verdicts, UNKNOWN);
+        size = 0;
+    }
+    
+    /**
+     * Moves every verdict into a new set of slots.
+     *
+     * @param capacity the number of slots, which must be a power of two
+     */
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        byte[] oldVerdicts = verdicts;
+        keys = new long[capacity];
+        verdicts = new byte[capacity];
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldVerdicts[i] != UNKNOWN) {
+                put(oldKeys[i], oldVerdicts[i]);
+            }
+        }
+    }
+    
+    /**
+     * Gets the slot a key would go in if nothing else were there.
+     *
+     * @param key  the packed position of the block
+     * @param mask one less than the number of slots
+     * @return the slot
+     */
+    private static int slotOf(long key, int mask) {
+        long mixed = key * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32)) & mask;
+    }
+}
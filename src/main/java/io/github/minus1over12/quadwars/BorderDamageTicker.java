@@ -0,0 +1,129 @@
+package io.github.minus1over12.quadwars;
+
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Damages every out of bounds player in a world from a single task, instead of running a task for
+ * each player. The task only runs while someone in the world is out of bounds.
+ *
+ * @author War Pigeon
+ */
+final class BorderDamageTicker {
+    /**
+     * How many players the ticker can hold before it needs to grow.
+     */
+    private static final int INITIAL_CAPACITY = 8;
+    /**
+     * The world this ticker is for.
+     */
+    private final World world;
+    /**
+     * The plugin used for scheduling the task.
+     */
+    private final Plugin plugin;
+    /**
+     * Damages a player if they are still outside the border, returning false once they are back
+     * inside.
+     */
+    private final Predicate<Player> damageIfOutside;
+    /**
+     * Called with each player the ticker stops damaging.
+     */
+    private final Consumer<Player> onRemoved;
+    /**
+     * Runs {@link #tick()}, timed if handler metrics are on.
+     */
+    private final Runnable timedTick;
+    /**
+     * The out of bounds players. Only the first {@link #count} slots are used.
+     */
+    private Player[] players = new Player[INITIAL_CAPACITY];
+    /**
+     * How many players are out of bounds.
+     */
+    private int count;
+    /**
+     * The running task, or null if nobody is out of bounds.
+     */
+    private ScheduledTask task;
+    
+    /**
+     * Creates a damage ticker.
+     *
+     * @param world           the world the ticker is for
+     * @param plugin          the plugin used for scheduling the task
+     * @param damageIfOutside damages a player if they are still outside the border, returning
+     *                        false once they are back inside
+     * @param onRemoved       called with each player the ticker stops damaging
+     * @param handlerMetrics  times the task if handler metrics are on
+     */
+    BorderDamageTicker(World world, Plugin plugin, Predicate<Player> damageIfOutside,
+                       Consumer<Player> onRemoved, HandlerMetrics handlerMetrics) {
+        this.world = world;
+        this.plugin = plugin;
+        this.damageIfOutside = damageIfOutside;
+        this.onRemoved = onRemoved;
+        timedTick = handlerMetrics.time("BorderDamageTicker.tick(" + world.getName() + ")",
+                this::tick);
+    }
+    
+    /**
+     * Starts damaging a player. The caller is responsible for not adding a player twice.
+     *
+     * @param player the player that is out of bounds
+     */
+    void add(Player player) {
+        if (count == players.length) {
+            players = Arrays.copyOf(players, count * 2);
+        }
+        players[count++] = player;
+        if (task == null) {
+            task = Bukkit.getGlobalRegionScheduler()
+                    .runAtFixedRate(plugin, scheduledTask -> timedTick.run(), 1, 1);
+        }
+    }
+    
+    /**
+     * Damages all the out of bounds players, dropping the ones that are back inside, dead, gone,
+     * or in another world.
+     */
+    private void tick() {
+        // Go backwards so the last player can be moved into a removed player's slot.
+        for (int i = count - 1; i >= 0; i--) {
+            Player player = players[i];
+            if (!player.isOnline() || player.isDead() || !world.equals(player.getWorld()) ||
+                    !damageIfOutside.test(player)) {
+                players[i] = players[--count];
+                players[count] = null;
+                onRemoved.accept(player);
+            }
+        }
+        if (count == 0) {
+            cancel();
+        }
+    }
+    
+    /**
+     * Stops the task and lets go of every player.
+     */
+    void cancel() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        for (int i = 0; i < count; i++) {
+            Player player = players[i];
+            players[i] = null;
+            onRemoved.accept(player);
+        }
+        count = 0;
+    }
+}
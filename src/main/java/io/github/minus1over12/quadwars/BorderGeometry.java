@@ -0,0 +1,117 @@
+package io.github.minus1over12.quadwars;
+
+import org.bukkit.World;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * An immutable table of the quadrant borders for every world, so event handlers do not need to
+ * build a new world border every time they need to check a location.
+ *
+ * @author War Pigeon
+ */
+final class BorderGeometry {
+    /**
+     * The borders for each quadrant, keyed by the world's UID.
+     */
+    private final Map<UUID, Map<Quadrant, QuadrantBorder>> borders;
+    /**
+     * Which chunks are entirely inside a quadrant or the axis buffer, keyed by the world's UID.
+     */
+    private final Map<UUID, ChunkClassification> chunks;
+    /**
+     * The configured size of a quadrant.
+     */
+    private final double worldBorderSize;
+    
+    /**
+     * Creates a border table.
+     *
+     * @param borders         the borders for each world
+     * @param chunks          the chunk classification for each world
+     * @param worldBorderSize the configured size of a quadrant
+     */
+    private BorderGeometry(Map<UUID, Map<Quadrant, QuadrantBorder>> borders,
+                           Map<UUID, ChunkClassification> chunks, double worldBorderSize) {
+        this.borders = borders;
+        this.chunks = chunks;
+        this.worldBorderSize = worldBorderSize;
+    }
+    
+    /**
+     * Builds the border table for a set of worlds.
+     *
+     * @param worlds          the worlds to build the table for
+     * @param worldBorderSize the configured size of a quadrant
+     * @return the border table
+     */
+    static @NotNull BorderGeometry build(@NotNull Collection<World> worlds,
+                                         double worldBorderSize) {
+        Map<UUID, Map<Quadrant, QuadrantBorder>> borders = HashMap.newHashMap(worlds.size());
+        Map<UUID, ChunkClassification> chunks = HashMap.newHashMap(worlds.size());
+        for (World world : worlds) {
+            Map<Quadrant, QuadrantBorder> worldBorders = new EnumMap<>(Quadrant.class);
+            for (Quadrant quadrant : Quadrant.values()) {
+                worldBorders.put(quadrant, QuadrantBorder.of(world, quadrant, worldBorderSize));
+            }
+            borders.put(world.getUID(), worldBorders);
+            chunks.put(world.getUID(),
+                    ChunkClassification.of(world.getCoordinateScale(), worldBorderSize));
+        }
+        return new BorderGeometry(Map.copyOf(borders), Map.copyOf(chunks), worldBorderSize);
+    }
+    
+    /**
+     * Gets the border for a quadrant in a world. Worlds that were not in the table when it was
+     * built get a border made on the spot.
+     *
+     * @param world    the world to get the border for
+     * @param quadrant the quadrant to get the border for
+     * @return the border
+     */
+    @NotNull QuadrantBorder get(@NotNull World world, Quadrant quadrant) {
+        Map<Quadrant, QuadrantBorder> worldBorders = borders.get(world.getUID());
+        return worldBorders == null ? QuadrantBorder.of(world, quadrant, worldBorderSize) :
+                worldBorders.get(quadrant);
+    }
+    
+    /**
+     * Gets which chunks of a world are entirely inside a quadrant or the axis buffer. Worlds that
+     * were not in the table when it was built get a classification made on the spot.
+     *
+     * @param world the world to get the classification for
+     * @return the chunk classification
+     */
+    @NotNull ChunkClassification getChunks(@NotNull World world) {
+        ChunkClassification worldChunks = chunks.get(world.getUID());
+        return worldChunks == null ?
+                ChunkClassification.of(world.getCoordinateScale(), worldBorderSize) : worldChunks;
+    }
+    
+    /**
+     * Gets the quadrant a block is in, without making any objects for worlds in the table. Only
+     * blocks in chunks that straddle an edge need the containment math.
+     *
+     * @param world  the world the block is in
+     * @param blockX the x coordinate of the block
+     * @param blockZ the z coordinate of the block
+     * @return the quadrant, or null if the block is not in any quadrant
+     */
+    @Nullable Quadrant getQuadrantAt(@NotNull World world, int blockX, int blockZ) {
+        ChunkClassification worldChunks = getChunks(world);
+        Quadrant quadrant = worldChunks.getQuadrantAt(blockX, blockZ);
+        if (quadrant != null || worldChunks.isAxisBufferAt(blockX, blockZ)) {
+            return quadrant;
+        }
+        double x = blockX + 0.5;
+        double z = blockZ + 0.5;
+        Quadrant nearest = WorldBorderController.getQuadrantAt(x, z);
+        return get(world, nearest).isInside(x, z) ? nearest : null;
+    }
+}
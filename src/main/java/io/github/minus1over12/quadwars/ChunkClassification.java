@@ -0,0 +1,233 @@
+package io.github.minus1over12.quadwars;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Sorts the chunks of a world into ones entirely inside a quadrant, ones entirely in the buffer
+ * along the axes, and ones that straddle an edge. Only blocks in straddling chunks need the full
+ * containment math. Quadrants are rectangles, so a chunk is entirely inside one exactly when its
+ * x and z are each in a range, and those ranges are all that is stored.
+ *
+ * @author War Pigeon
+ */
+final class ChunkClassification {
+    /**
+     * How far inside an edge, in blocks, a chunk has to be to be classified. This covers the
+     * rounding the containment math does in scaled worlds.
+     */
+    private static final int MARGIN = 1;
+    /**
+     * The number of blocks along each side of a chunk.
+     */
+    private static final int CHUNK_SIZE = 16;
+    /**
+     * The number of bits to shift a block coordinate by to get its chunk coordinate.
+     */
+    private static final int CHUNK_SHIFT = 4;
+    /**
+     * The quadrants, indexed by {@link #signIndex(int, int)}.
+     */
+    private static final Quadrant[] BY_SIGNS = new Quadrant[4];
+    
+    static {
+        for (Quadrant quadrant : Quadrant.values()) {
+            BY_SIGNS[signIndex(quadrant.xSign, quadrant.zSign)] = quadrant;
+        }
+    }
+    
+    /**
+     * The lowest chunk coordinate entirely inside the quadrants on the positive side of an axis.
+     */
+    private final int positiveMin;
+    /**
+     * The highest chunk coordinate entirely inside the quadrants on the positive side of an axis.
+     */
+    private final int positiveMax;
+    /**
+     * The lowest chunk coordinate entirely inside the quadrants on the negative side of an axis.
+     */
+    private final int negativeMin;
+    /**
+     * The highest chunk coordinate entirely inside the quadrants on the negative side of an axis.
+     */
+    private final int negativeMax;
+    /**
+     * The lowest chunk coordinate entirely inside the buffer along an axis.
+     */
+    private final int bufferMin;
+    /**
+     * The highest chunk coordinate entirely inside the buffer along an axis.
+     */
+    private final int bufferMax;
+    
+    /**
+     * Creates a chunk classification from its ranges. Empty ranges have a minimum above their
+     * maximum.
+     *
+     * @param positiveMin the lowest chunk entirely inside the positive side of an axis
+     * @param positiveMax the highest chunk entirely inside the positive side of an axis
+     * @param negativeMin the lowest chunk entirely inside the negative side of an axis
+     * @param negativeMax the highest chunk entirely inside the negative side of an axis
+     * @param bufferMin   the lowest chunk entirely inside the buffer along an axis
+     * @param bufferMax   the highest chunk entirely inside the buffer along an axis
+     */
+    private ChunkClassification(int positiveMin, int positiveMax, int negativeMin,
+                                int negativeMax, int bufferMin, int bufferMax) {
+        this.positiveMin = positiveMin;
+        this.positiveMax = positiveMax;
+        this.negativeMin = negativeMin;
+        this.negativeMax = negativeMax;
+        this.bufferMin = bufferMin;
+        this.bufferMax = bufferMax;
+    }
+    
+    /**
+     * Works out the chunk classification for a world.
+     *
+     * @param coordinateScale the coordinate scale of the world
+     * @param worldBorderSize the configured size of a quadrant
+     * @return the chunk classification
+     */
+    static ChunkClassification of(double coordinateScale, double worldBorderSize) {
+        double innerEdge = WorldBorderController.AXIS_BUFFER_OFFSET / coordinateScale;
+        double outerEdge = innerEdge + worldBorderSize / coordinateScale;
+        int positiveMin = (int) Math.ceil((innerEdge + MARGIN) / CHUNK_SIZE);
+        int positiveMax = (int) Math.floor((outerEdge - MARGIN) / CHUNK_SIZE) - 1;
+        int negativeMin = (int) Math.ceil(-(outerEdge - MARGIN) / CHUNK_SIZE);
+        int negativeMax = (int) Math.floor(-(innerEdge + MARGIN) / CHUNK_SIZE) - 1;
+        int bufferMin = (int) Math.ceil(-(innerEdge - MARGIN) / CHUNK_SIZE);
+        int bufferMax = (int) Math.floor((innerEdge - MARGIN) / CHUNK_SIZE) - 1;
+        // The ranges are worked out from the edges, so check their ends against the real
+        // containment math. Anything that doesn't match, like a border clamped at the edge of the
+        // world, is left empty so those chunks get the full check.
+        double middle = innerEdge + (outerEdge - innerEdge) / 2;
+        if (!isRangeInside(positiveMin, positiveMax, 1, middle, coordinateScale,
+                worldBorderSize)) {
+            positiveMax = positiveMin - 1;
+        }
+        if (!isRangeInside(negativeMin, negativeMax, -1, middle, coordinateScale,
+                worldBorderSize)) {
+            negativeMax = negativeMin - 1;
+        }
+        for (Quadrant quadrant : Quadrant.values()) {
+            if (isAnyInside(bufferMin, bufferMax, quadrant, middle, coordinateScale,
+                    worldBorderSize)) {
+                bufferMax = bufferMin - 1;
+            }
+        }
+        return new ChunkClassification(positiveMin, positiveMax, negativeMin, negativeMax,
+                bufferMin, bufferMax);
+    }
+    
+    /**
+     * Checks that both ends of a range of chunks are inside the quadrants on one side of an axis.
+     *
+     * @param min             the lowest chunk in the range
+     * @param max             the highest chunk in the range
+     * @param sign            the side of the axis
+     * @param middle          the distance from the axis to the middle of a quadrant
+     * @param coordinateScale the coordinate scale of the world
+     * @param worldBorderSize the configured size of a quadrant
+     * @return true if the range is empty or both ends are inside
+     */
+    private static boolean isRangeInside(int min, int max, int sign, double middle,
+                                         double coordinateScale, double worldBorderSize) {
+        if (min > max) {
+            return true;
+        }
+        double low = (double) min * CHUNK_SIZE;
+        double high = Math.nextDown((double) (max + 1) * CHUNK_SIZE);
+        for (Quadrant quadrant : Quadrant.values()) {
+            if (quadrant.xSign == sign) {
+                double z = quadrant.zSign * middle;
+                if (!QuadrantContainment.isInside(low, z, coordinateScale, quadrant,
+                        worldBorderSize) ||
+                        !QuadrantContainment.isInside(high, z, coordinateScale, quadrant,
+                                worldBorderSize)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Checks if either end of a range of chunks is inside a quadrant.
+     *
+     * @param min             the lowest chunk in the range
+     * @param max             the highest chunk in the range
+     * @param quadrant        the quadrant to check
+     * @param middle          the distance from the axis to the middle of a quadrant
+     * @param coordinateScale the coordinate scale of the world
+     * @param worldBorderSize the configured size of a quadrant
+     * @return true if the range is not empty and either end is inside
+     */
+    private static boolean isAnyInside(int min, int max, Quadrant quadrant, double middle,
+                                       double coordinateScale, double worldBorderSize) {
+        if (min > max) {
+            return false;
+        }
+        double z = quadrant.zSign * middle;
+        return QuadrantContainment.isInside((double) min * CHUNK_SIZE, z, coordinateScale,
+                quadrant, worldBorderSize) ||
+                QuadrantContainment.isInside(Math.nextDown((double) (max + 1) * CHUNK_SIZE), z,
+                        coordinateScale, quadrant, worldBorderSize);
+    }
+    
+    /**
+     * Gets the index of a quadrant in {@link #BY_SIGNS}.
+     *
+     * @param xSign the sign of the x coordinate
+     * @param zSign the sign of the z coordinate
+     * @return the index
+     */
+    private static int signIndex(int xSign, int zSign) {
+        return (xSign > 0 ? 1 : 0) | (zSign > 0 ? 2 : 0);
+    }
+    
+    /**
+     * Gets which side of an axis a chunk coordinate is entirely inside the quadrants on.
+     *
+     * @param chunk the chunk coordinate
+     * @return 1 for the positive side, -1 for the negative side, or 0 if neither
+     */
+    private int sideOf(int chunk) {
+        if (chunk >= positiveMin && chunk <= positiveMax) {
+            return 1;
+        } else if (chunk >= negativeMin && chunk <= negativeMax) {
+            return -1;
+        }
+        return 0;
+    }
+    
+    /**
+     * Gets the quadrant the chunk a block is in is entirely inside.
+     *
+     * @param blockX the x coordinate of the block
+     * @param blockZ the z coordinate of the block
+     * @return the quadrant, or null if the chunk is not entirely inside one
+     */
+    @Nullable Quadrant getQuadrantAt(int blockX, int blockZ) {
+        int xSide = sideOf(blockX >> CHUNK_SHIFT);
+        if (xSide == 0) {
+            return null;
+        }
+        int zSide = sideOf(blockZ >> CHUNK_SHIFT);
+        return zSide == 0 ? null : BY_SIGNS[signIndex(xSide, zSide)];
+    }
+    
+    /**
+     * Checks if the chunk a block is in is entirely inside the buffer along one of the axes, and
+     * so outside every quadrant.
+     *
+     * @param blockX the x coordinate of the block
+     * @param blockZ the z coordinate of the block
+     * @return true if the chunk is entirely in the buffer
+     */
+    boolean isAxisBufferAt(int blockX, int blockZ) {
+        int chunkX = blockX >> CHUNK_SHIFT;
+        int chunkZ = blockZ >> CHUNK_SHIFT;
+        return chunkX >= bufferMin && chunkX <= bufferMax ||
+                chunkZ >= bufferMin && chunkZ <= bufferMax;
+    }
+}
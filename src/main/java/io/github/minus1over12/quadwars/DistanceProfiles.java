@@ -0,0 +1,281 @@
+package io.github.minus1over12.quadwars;
+
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.Bukkit;
+import org.bukkit.NamespacedKey;
+import org.bukkit.World;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+/**
+ * Sets the view, simulation, and send distance of the game worlds from a profile for each phase
+ * and dimension. The distances are moved a few chunks at a time, one world at a time, so a phase
+ * change doesn't load or unload every chunk around every player at once.
+ *
+ * @author War Pigeon
+ */
+final class DistanceProfiles {
+    /**
+     * The path to the profiles in the config.
+     */
+    static final String CONFIG_PATH = "distanceProfiles";
+    /**
+     * The key for the view distance in a profile.
+     */
+    private static final String VIEW_KEY = "view";
+    /**
+     * The key for the simulation distance in a profile.
+     */
+    private static final String SIMULATION_KEY = "simulation";
+    /**
+     * The key for the send distance in a profile.
+     */
+    private static final String SEND_KEY = "send";
+    /**
+     * The smallest distance the server allows, in chunks.
+     */
+    private static final int MIN_DISTANCE = 2;
+    /**
+     * The largest distance the server allows, in chunks.
+     */
+    private static final int MAX_DISTANCE = 32;
+    /**
+     * The most a distance is changed by in one step, in chunks.
+     */
+    private static final int MAX_STEP = 2;
+    /**
+     * How many ticks to wait between steps.
+     */
+    private static final long STEP_INTERVAL = 10;
+    /**
+     * A distance that isn't set in a profile, so the world's own is used.
+     */
+    private static final int UNSET = -1;
+    /**
+     * The plugin used for scheduling the task.
+     */
+    private final Plugin plugin;
+    /**
+     * Where to log problems with the profiles.
+     */
+    private final Logger logger;
+    /**
+     * The keys of worlds to leave alone.
+     */
+    private final Collection<NamespacedKey> ignoredWorldKeys;
+    /**
+     * Runs {@link #step()}, timed if handler metrics are on.
+     */
+    private final Runnable timedStep;
+    /**
+     * The profiles for each phase, by dimension.
+     */
+    private final Map<GameState, Map<World.Environment, Distances>> profiles =
+            new EnumMap<>(GameState.class);
+    /**
+     * The distances each world had before it was first changed, by world UUID.
+     */
+    private final Map<UUID, Distances> originals = new HashMap<>();
+    /**
+     * The distances each world is still being moved towards, in the order they will be stepped.
+     */
+    private final Map<UUID, Distances> pending = new LinkedHashMap<>();
+    /**
+     * The running task, or null if every world is at its target.
+     */
+    private ScheduledTask task;
+    
+    /**
+     * Reads the profiles from the config.
+     *
+     * @param plugin           the plugin to get the config from and use for scheduling the task
+     * @param ignoredWorldKeys the keys of worlds to leave alone
+     * @param handlerMetrics   times the task if handler metrics are on
+     */
+    DistanceProfiles(@NotNull Plugin plugin, @NotNull Collection<NamespacedKey> ignoredWorldKeys,
+                     @NotNull HandlerMetrics handlerMetrics) {
+        this.plugin = plugin;
+        logger = plugin.getLogger();
+        this.ignoredWorldKeys = ignoredWorldKeys;
+        timedStep = handlerMetrics.time("DistanceProfiles.step", this::step);
+        ConfigurationSection section = plugin.getConfig().getConfigurationSection(CONFIG_PATH);
+        if (section == null) {
+            return;
+        }
+        for (String phaseName : section.getKeys(false)) {
+            GameState phase;
+            try {
+                phase = GameState.valueOf(phaseName.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                logger.warning("Unknown phase in " + CONFIG_PATH + ": " + phaseName);
+                continue;
+            }
+            ConfigurationSection phaseSection = section.getConfigurationSection(phaseName);
+            if (phaseSection == null) {
+                continue;
+            }
+            Map<World.Environment, Distances> dimensions = new EnumMap<>(World.Environment.class);
+            for (String dimensionName : phaseSection.getKeys(false)) {
+                World.Environment dimension;
+                try {
+                    dimension = World.Environment.valueOf(dimensionName.toUpperCase(Locale.ROOT));
+                } catch (IllegalArgumentException e) {
+                    logger.warning("Unknown dimension in " + CONFIG_PATH + "." + phaseName + ": " +
+                            dimensionName);
+                    continue;
+                }
+                ConfigurationSection profile = phaseSection.getConfigurationSection(dimensionName);
+                if (profile != null) {
+                    dimensions.put(dimension, new Distances(readDistance(profile, VIEW_KEY),
+                            readDistance(profile, SIMULATION_KEY),
+                            readDistance(profile, SEND_KEY)));
+                }
+            }
+            profiles.put(phase, dimensions);
+        }
+    }
+    
+    /**
+     * Reads one distance from a profile.
+     *
+     * @param profile the profile
+     * @param key     the key of the distance
+     * @return the distance, kept to what the server allows, or {@link #UNSET} if it isn't set
+     */
+    private static int readDistance(ConfigurationSection profile, String key) {
+        return profile.isInt(key) ?
+                Math.clamp(profile.getInt(key), MIN_DISTANCE, MAX_DISTANCE) : UNSET;
+    }
+    
+    /**
+     * Starts moving every game world towards its profile for a phase.
+     *
+     * @param phase the phase the game is in
+     */
+    void apply(@NotNull GameState phase) {
+        for (World world : Bukkit.getWorlds()) {
+            apply(world, phase);
+        }
+    }
+    
+    /**
+     * Starts moving a world towards its profile for a phase. Distances the profile doesn't set go
+     * back to what the world had before it was first changed.
+     *
+     * @param world the world
+     * @param phase the phase the game is in
+     */
+    void apply(@NotNull World world, @NotNull GameState phase) {
+        if (ignoredWorldKeys.contains(world.getKey())) {
+            return;
+        }
+        Distances profile = profiles.getOrDefault(phase, Map.of()).get(world.getEnvironment());
+        Distances original = originals.get(world.getUID());
+        if (profile == null && original == null) {
+            // Never changed, and nothing to change it to.
+            return;
+        }
+        if (original == null) {
+            original = new Distances(world.getViewDistance(), world.getSimulationDistance(),
+                    world.getSendViewDistance());
+            originals.put(world.getUID(), original);
+        }
+        Distances target = profile == null ? original : new Distances(
+                profile.view() == UNSET ? original.view() : profile.view(),
+                profile.simulation() == UNSET ? original.simulation() : profile.simulation(),
+                profile.send() == UNSET ? original.send() : profile.send());
+        pending.remove(world.getUID());
+        pending.put(world.getUID(), target);
+        if (task == null) {
+            task = Bukkit.getGlobalRegionScheduler().runAtFixedRate(plugin,
+                    scheduledTask -> timedStep.run(), 1, STEP_INTERVAL);
+        }
+    }
+    
+    /**
+     * Forgets a world that is unloading.
+     *
+     * @param world the world
+     */
+    void forget(@NotNull World world) {
+        originals.remove(world.getUID());
+        pending.remove(world.getUID());
+    }
+    
+    /**
+     * Moves the next waiting world one step closer to its target, putting it at the back of the
+     * line if it isn't there yet.
+     */
+    private void step() {
+        Iterator<Map.Entry<UUID, Distances>> iterator = pending.entrySet().iterator();
+        if (!iterator.hasNext()) {
+            task.cancel();
+            task = null;
+            return;
+        }
+        Map.Entry<UUID, Distances> entry = iterator.next();
+        iterator.remove();
+        World world = Bukkit.getWorld(entry.getKey());
+        if (world == null) {
+            return;
+        }
+        Distances target = entry.getValue();
+        int view = towards(world.getViewDistance(), target.view());
+        int simulation = towards(world.getSimulationDistance(), target.simulation());
+        int currentSend = world.getSendViewDistance();
+        int send;
+        if (target.send() < MIN_DISTANCE) {
+            // The world had no send distance of its own, so it follows the view distance, which
+            // is already being stepped.
+            send = target.send();
+        } else {
+            send = towards(currentSend < MIN_DISTANCE ? world.getViewDistance() : currentSend,
+                    target.send());
+        }
+        if (view != world.getViewDistance()) {
+            world.setViewDistance(view);
+        }
+        if (simulation != world.getSimulationDistance()) {
+            world.setSimulationDistance(simulation);
+        }
+        if (send != currentSend) {
+            world.setSendViewDistance(send);
+        }
+        if (view != target.view() || simulation != target.simulation() ||
+                send != target.send()) {
+            pending.put(entry.getKey(), target);
+        }
+    }
+    
+    /**
+     * Moves a distance at most {@link #MAX_STEP} chunks towards a target.
+     *
+     * @param current the distance now
+     * @param target  the distance to move towards
+     * @return the next distance
+     */
+    private static int towards(int current, int target) {
+        return current + Math.clamp(target - current, -MAX_STEP, MAX_STEP);
+    }
+    
+    /**
+     * The three distances of a world, in chunks.
+     *
+     * @param view       the view distance
+     * @param simulation the simulation distance
+     * @param send       the send distance
+     */
+    private record Distances(int view, int simulation, int send) {
+    }
+}
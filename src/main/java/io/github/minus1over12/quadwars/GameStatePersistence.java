@@ -0,0 +1,226 @@
+package io.github.minus1over12.quadwars;
+
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Saves the game state on its own thread, so the server thread never waits on the disk. Each save
+ * is written to a temporary file, synced, and then moved over the real file, so a crash can't
+ * leave a half written file behind. The previous save is kept as a backup to fall back on.
+ *
+ * @author War Pigeon
+ */
+final class GameStatePersistence {
+    /**
+     * The path to the game state in the file.
+     */
+    private static final String GAME_STATE_PATH = "gameState";
+    /**
+     * How long to wait for the last save to finish when shutting down.
+     */
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+    /**
+     * The file the game state is stored in.
+     */
+    private final Path file;
+    /**
+     * The last good save, kept in case the main file can't be read.
+     */
+    private final Path backupFile;
+    /**
+     * The file new saves are written to before being moved into place.
+     */
+    private final Path tempFile;
+    /**
+     * The logger to report problems to.
+     */
+    private final Logger logger;
+    /**
+     * The thread the files are written on.
+     */
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "QuadWars Game State Writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    /**
+     * The newest state that hasn't been written yet, or null if there is nothing to write. A
+     * burst of changes only writes the last one.
+     */
+    private final AtomicReference<GameState> pending = new AtomicReference<>();
+    /**
+     * If the main file holds a good save that can be kept as the backup.
+     */
+    private volatile boolean fileIsGood;
+    
+    /**
+     * Creates the persistence service.
+     *
+     * @param file   the file the game state is stored in
+     * @param logger the logger to report problems to
+     */
+    GameStatePersistence(@NotNull Path file, @NotNull Logger logger) {
+        this.file = file;
+        this.backupFile = file.resolveSibling(file.getFileName() + ".bak");
+        this.tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        this.logger = logger;
+    }
+    
+    /**
+     * Checks if there is a saved game state, good or not.
+     *
+     * @return true if either the main or the backup file exists
+     */
+    boolean exists() {
+        return Files.exists(file) || Files.exists(backupFile);
+    }
+    
+    /**
+     * Loads the game state. If the main file is missing or can't be read, the backup is used
+     * instead, and if neither can be read the game starts from the beginning.
+     *
+     * @return the saved game state
+     */
+    @NotNull GameState load() {
+        GameState state = read(file);
+        fileIsGood = state != null;
+        if (state != null) {
+            return state;
+        }
+        state = read(backupFile);
+        if (state != null) {
+            logger.warning("Using the backup game state " + state + " from " + backupFile);
+            save(state);
+            return state;
+        }
+        if (exists()) {
+            logger.severe("Could not read the game state or its backup, starting from " +
+                    GameState.PREGAME);
+        }
+        return GameState.PREGAME;
+    }
+    
+    /**
+     * Reads a game state file.
+     *
+     * @param path the file to read
+     * @return the game state in the file, or null if it is missing or broken
+     */
+    private @Nullable GameState read(@NotNull Path path) {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try {
+            YamlConfiguration config = new YamlConfiguration();
+            config.loadFromString(Files.readString(path, StandardCharsets.UTF_8));
+            String state = config.getString(GAME_STATE_PATH);
+            if (state == null) {
+                logger.warning(path + " does not have a game state");
+                return null;
+            }
+            return GameState.valueOf(state);
+        } catch (IOException | InvalidConfigurationException | IllegalArgumentException e) {
+            logger.log(Level.WARNING, "Could not read " + path, e);
+            return null;
+        }
+    }
+    
+    /**
+     * Queues the game state to be saved. Returns right away.
+     *
+     * @param state the game state to save
+     */
+    void save(@NotNull GameState state) {
+        if (pending.getAndSet(state) == null) {
+            try {
+                writer.execute(this::writePending);
+            } catch (RejectedExecutionException e) {
+                // Already shut down, so there's no thread left to do it.
+                writePending();
+            }
+        }
+    }
+    
+    /**
+     * Writes the newest pending state, if there is one.
+     */
+    private void writePending() {
+        GameState state = pending.getAndSet(null);
+        if (state == null) {
+            return;
+        }
+        YamlConfiguration config = new YamlConfiguration();
+        config.set(GAME_STATE_PATH, state.toString());
+        try {
+            Files.createDirectories(file.getParent());
+            try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer =
+                        ByteBuffer.wrap(config.saveToString().getBytes(StandardCharsets.UTF_8));
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            // Don't let a broken main file replace a good backup.
+            if (fileIsGood) {
+                move(file, backupFile);
+            }
+            move(tempFile, file);
+            fileIsGood = true;
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Could not save game state file", e);
+        }
+    }
+    
+    /**
+     * Moves a file over another one, atomically if the file system allows it.
+     *
+     * @param source the file to move
+     * @param target where to move it
+     * @throws IOException if the file could not be moved
+     */
+    static void move(@NotNull Path source, @NotNull Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+    
+    /**
+     * Waits for any queued save to be written and stops the writer thread. Saves queued after this
+     * are written on the calling thread.
+     */
+    void close() {
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                logger.warning("Timed out waiting for the game state to save");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writePending();
+    }
+}
@@ -0,0 +1,379 @@
+package io.github.minus1over12.quadwars;
+
+import net.kyori.adventure.audience.Audience;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
+import org.bstats.bukkit.Metrics;
+import org.bstats.charts.AdvancedPie;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.Listener;
+import org.bukkit.plugin.EventExecutor;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.PluginManager;
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+/**
+ * Times the plugin's event handlers and repeating tasks, so it's possible to tell which one is
+ * responsible when the server lags. When it is turned off in the config, handlers are registered
+ * the normal way and tasks are run as they are, so it costs nothing.
+ *
+ * @author War Pigeon
+ */
+final class HandlerMetrics {
+    /**
+     * The path to the config option that turns timing on.
+     */
+    static final String CONFIG_PATH = "handlerMetrics";
+    /**
+     * The number of nanoseconds in a microsecond, for showing times.
+     */
+    private static final double NANOS_PER_MICRO = TimeUnit.MICROSECONDS.toNanos(1);
+    /**
+     * The timers by name.
+     */
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    /**
+     * Whether timing is on.
+     */
+    private final boolean enabled;
+    /**
+     * When the timers were last reset, from {@link System#nanoTime()}.
+     */
+    private volatile long resetTime = System.nanoTime();
+    
+    /**
+     * Creates the metrics registry.
+     *
+     * @param enabled whether to time anything
+     */
+    HandlerMetrics(boolean enabled) {
+        this.enabled = enabled;
+    }
+    
+    /**
+     * Registers all the event handlers of a listener, timing each one if timing is on.
+     *
+     * @param listener the listener to register
+     * @param plugin   the plugin registering the listener
+     */
+    void registerEvents(@NotNull Listener listener, @NotNull Plugin plugin) {
+        PluginManager pluginManager = plugin.getServer().getPluginManager();
+        if (!enabled) {
+            pluginManager.registerEvents(listener, plugin);
+            return;
+        }
+        // Same search as Bukkit, so inherited and private handlers are both found.
+        Set<Method> methods = new LinkedHashSet<>();
+        methods.addAll(Arrays.asList(listener.getClass().getMethods()));
+        methods.addAll(Arrays.asList(listener.getClass().getDeclaredMethods()));
+        for (Method method : methods) {
+            EventHandler handler = method.getAnnotation(EventHandler.class);
+            if (handler == null || method.isBridge() || method.isSynthetic() ||
+                    method.getParameterCount() != 1 ||
+                    !Event.class.isAssignableFrom(method.getParameterTypes()[0])) {
+                continue;
+            }
+            Class<? extends Event> eventClass =
+                    method.getParameterTypes()[0].asSubclass(Event.class);
+            Timer timer = getTimer(listener.getClass().getSimpleName() + "." + method.getName() +
+                    "(" + eventClass.getSimpleName() + ")");
+            EventExecutor executor = EventExecutor.create(method, eventClass);
+            pluginManager.registerEvent(eventClass, listener, handler.priority(),
+                    (registeredListener, event) -> {
+                        // Events that share a handler list with this one also come through here.
+                        if (eventClass.isInstance(event)) {
+                            long start = System.nanoTime();
+                            try {
+                                executor.execute(registeredListener, event);
+                            } finally {
+                                timer.record(System.nanoTime() - start);
+                            }
+                        }
+                    }, plugin, handler.ignoreCancelled());
+        }
+    }
+    
+    /**
+     * Wraps a repeating task so it is timed if timing is on.
+     *
+     * @param name the name to show for the task
+     * @param task the task
+     * @return the timed task, or the task itself if timing is off
+     */
+    @NotNull Runnable time(@NotNull String name, @NotNull Runnable task) {
+        if (!enabled) {
+            return task;
+        }
+        Timer timer = getTimer(name);
+        return () -> {
+            long start = System.nanoTime();
+            try {
+                task.run();
+            } finally {
+                timer.record(System.nanoTime() - start);
+            }
+        };
+    }
+    
+    /**
+     * Gets the timer with a name, making it if it doesn't exist yet.
+     *
+     * @param name the name of the timer
+     * @return the timer
+     */
+    private Timer getTimer(String name) {
+        return timers.computeIfAbsent(name, ignored -> new Timer());
+    }
+    
+    /**
+     * Clears every timer, so the next stats only cover what happens from now on.
+     */
+    void reset() {
+        for (Timer timer : timers.values()) {
+            timer.reset();
+        }
+        resetTime = System.nanoTime();
+    }
+    
+    /**
+     * Sends the stats of every timer that has run, the ones that have taken the most time in
+     * total first.
+     *
+     * @param audience who to send the stats to
+     */
+    void sendStats(@NotNull Audience audience) {
+        if (!enabled) {
+            audience.sendMessage(Component.text("Handler metrics are off. Set " + CONFIG_PATH +
+                    " to true in the config and restart to turn them on.")
+                    .color(NamedTextColor.RED));
+            return;
+        }
+        double seconds = Math.max(1, (System.nanoTime() - resetTime) / 1e9);
+        audience.sendMessage(Component.text(String.format(
+                "Handler stats for the last %.0f seconds (p50/p99/max in µs):", seconds)));
+        timers.entrySet().stream().filter(entry -> entry.getValue().getCount() > 0)
+                .sorted(Comparator.comparingLong(
+                        (Map.Entry<String, Timer> entry) -> entry.getValue().getTotal())
+                        .reversed())
+                .forEach(entry -> {
+                    Timer timer = entry.getValue();
+                    audience.sendMessage(Component.text(entry.getKey(), NamedTextColor.GOLD)
+                            .append(Component.text(String.format(
+                                    " %.1f/s %.1f/%.1f/%.1f", timer.getCount() / seconds,
+                                    timer.getPercentile(0.5) / NANOS_PER_MICRO,
+                                    timer.getPercentile(0.99) / NANOS_PER_MICRO,
+                                    timer.getMax() / NANOS_PER_MICRO), NamedTextColor.WHITE)));
+                });
+    }
+    
+    /**
+     * Adds charts to bStats for how often each handler is called and how much time each takes.
+     * Does nothing if timing is off.
+     *
+     * @param metrics the bStats metrics to add the charts to
+     */
+    void addCharts(@NotNull Metrics metrics) {
+        if (!enabled) {
+            return;
+        }
+        metrics.addCustomChart(new AdvancedPie("handler_calls",
+                () -> collect(Timer::takeChartCount)));
+        metrics.addCustomChart(new AdvancedPie("handler_time_ms",
+                () -> collect(timer -> TimeUnit.NANOSECONDS.toMillis(timer.takeChartTotal()))));
+    }
+    
+    /**
+     * Gets a value from every timer for a chart, leaving out zeros.
+     *
+     * @param value gets the value from a timer
+     * @return the values by timer name
+     */
+    private Map<String, Integer> collect(ToLongFunction<Timer> value) {
+        Map<String, Integer> values = new HashMap<>();
+        for (Map.Entry<String, Timer> entry : timers.entrySet()) {
+            long amount = value.applyAsLong(entry.getValue());
+            if (amount > 0) {
+                values.put(entry.getKey(), (int) Math.min(amount, Integer.MAX_VALUE));
+            }
+        }
+        return values;
+    }
+    
+    /**
+     * Records how long something took, without locking. Times are kept in a histogram with eight
+     * buckets for every power of two, so percentiles are within about 12% of the real value.
+     */
+    private static final class Timer {
+        /**
+         * How many bits of each time are used to pick a bucket inside its power of two.
+         */
+        private static final int SUB_BUCKET_BITS = 3;
+        /**
+         * The number of buckets for each power of two.
+         */
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+        /**
+         * The number of buckets, enough for any positive long.
+         */
+        private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+        /**
+         * The number of times in each bucket.
+         */
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        /**
+         * The number of times recorded.
+         */
+        private final LongAdder count = new LongAdder();
+        /**
+         * The sum of all the times recorded, in nanoseconds.
+         */
+        private final LongAdder total = new LongAdder();
+        /**
+         * The longest time recorded, in nanoseconds.
+         */
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+        /**
+         * The number of times recorded since bStats last asked.
+         */
+        private final LongAdder chartCount = new LongAdder();
+        /**
+         * The sum of the times recorded since bStats last asked, in nanoseconds.
+         */
+        private final LongAdder chartTotal = new LongAdder();
+        
+        /**
+         * Records a time.
+         *
+         * @param nanos how long it took, in nanoseconds
+         */
+        void record(long nanos) {
+            long value = Math.max(0, nanos);
+            buckets.incrementAndGet(bucketOf(value));
+            count.increment();
+            total.add(value);
+            max.accumulate(value);
+            chartCount.increment();
+            chartTotal.add(value);
+        }
+        
+        /**
+         * Gets the bucket a time goes in.
+         *
+         * @param value the time, which must not be negative
+         * @return the index of the bucket
+         */
+        private static int bucketOf(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+            int shift = exponent - SUB_BUCKET_BITS;
+            return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+        }
+        
+        /**
+         * Gets the largest time that goes in a bucket.
+         *
+         * @param bucket the index of the bucket
+         * @return the largest time, in nanoseconds
+         */
+        private static long upperBoundOf(int bucket) {
+            if (bucket < SUB_BUCKETS) {
+                return bucket;
+            }
+            int shift = bucket / SUB_BUCKETS - 1;
+            long subBucket = SUB_BUCKETS + bucket % SUB_BUCKETS;
+            return ((subBucket + 1) << shift) - 1;
+        }
+        
+        /**
+         * Gets a percentile of the recorded times.
+         *
+         * @param fraction the percentile, from 0 to 1
+         * @return the time, in nanoseconds, rounded up to the end of its bucket
+         */
+        long getPercentile(double fraction) {
+            long target = (long) Math.ceil(count.sum() * fraction);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets.get(i);
+                if (seen >= target && seen > 0) {
+                    return Math.min(upperBoundOf(i), max.get());
+                }
+            }
+            return max.get();
+        }
+        
+        /**
+         * Gets the number of times recorded.
+         *
+         * @return the count
+         */
+        long getCount() {
+            return count.sum();
+        }
+        
+        /**
+         * Gets the sum of the recorded times.
+         *
+         * @return the total, in nanoseconds
+         */
+        long getTotal() {
+            return total.sum();
+        }
+        
+        /**
+         * Gets the longest recorded time.
+         *
+         * @return the time, in nanoseconds
+         */
+        long getMax() {
+            return max.get();
+        }
+        
+        /**
+         * Gets the number of times recorded since the last call, for bStats.
+         *
+         * @return the count
+         */
+        long takeChartCount() {
+            return chartCount.sumThenReset();
+        }
+        
+        /**
+         * Gets the sum of the times recorded since the last call, for bStats.
+         *
+         * @return the total, in nanoseconds
+         */
+        long takeChartTotal() {
+            return chartTotal.sumThenReset();
+        }
+        
+        /**
+         * Clears the recorded times. Times recorded at the same moment may be partly kept.
+         */
+        void reset() {
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets.set(i, 0);
+            }
+            count.reset();
+            total.reset();
+            max.reset();
+        }
+    }
+}
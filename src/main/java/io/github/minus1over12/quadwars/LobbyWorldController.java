@@ -18,6 +18,7 @@ import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.plugin.Plugin;
 
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Controls the lobby world.
@@ -50,13 +51,18 @@ public class LobbyWorldController implements Listener {
      * The plugin used for scheduling tasks.
      */
     private final Plugin plugin;
+    /**
+     * Spreads out teleports back to the lobby.
+     */
+    private final TeleportScheduler teleportScheduler;
     
     /**
      * Creates a lobby world control object.
      *
-     * @param plugin the plugin to get the game state from
+     * @param plugin            the plugin to get the game state from
+     * @param teleportScheduler spreads out teleports back to the lobby
      */
-    LobbyWorldController(QuadWars plugin) {
+    LobbyWorldController(QuadWars plugin, TeleportScheduler teleportScheduler) {
         gameState = plugin.getGameState();
         lobbyWorld = Objects.requireNonNull(
                 new WorldCreator(new NamespacedKey(plugin, "lobby")).generateStructures(false)
@@ -74,6 +80,7 @@ public class LobbyWorldController implements Listener {
         worldBorder.setCenter(lobbyWorld.getSpawnLocation());
         worldBorder.setSize(LOBBY_WORLD_BORDER_SIZE);
         this.plugin = plugin;
+        this.teleportScheduler = teleportScheduler;
     }
     
     /**
@@ -142,8 +149,9 @@ public class LobbyWorldController implements Listener {
         gameState = event.getState();
         if (gameState == GameState.PREGAME) {
             for (Player player : Bukkit.getOnlinePlayers()) {
-                player.teleportAsync(lobbyWorld.getSpawnLocation())
-                        .thenRun(() -> player.setGameMode(GameMode.ADVENTURE));
+                teleportScheduler.schedule(player, lobbyWorld,
+                        () -> CompletableFuture.completedFuture(lobbyWorld.getSpawnLocation()),
+                        GameMode.ADVENTURE);
                 if (Bukkit.getPluginManager().isPluginEnabled(FLOODGATE_NAME)) {
                     FloodgateIntegration.sendTeamForm(player);
                 }
@@ -2,21 +2,28 @@ package io.github.minus1over12.quadwars;
 
 import com.lunarclient.apollo.Apollo;
 import com.lunarclient.apollo.common.cuboid.Cuboid2D;
+import com.lunarclient.apollo.event.EventBus;
+import com.lunarclient.apollo.event.player.ApolloRegisterPlayerEvent;
+import com.lunarclient.apollo.event.player.ApolloUnregisterPlayerEvent;
 import com.lunarclient.apollo.module.border.Border;
 import com.lunarclient.apollo.module.border.BorderModule;
 import com.lunarclient.apollo.module.serverrule.ServerRuleModule;
 import com.lunarclient.apollo.option.Options;
 import com.lunarclient.apollo.player.ApolloPlayer;
-import com.lunarclient.apollo.recipients.Recipients;
 import org.bukkit.NamespacedKey;
 import org.bukkit.World;
 import org.bukkit.entity.Entity;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
 
 import java.awt.Color;
-import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Integrates QuadWars with Lunar Client using their Apollo plugin.
@@ -24,7 +31,35 @@ import java.util.Collection;
  * @author War Pigeon
  */
 public class LunarClientIntegration implements Listener {
+    /**
+     * The color of the borders, matching the vanilla world border.
+     *
+     * @see <a href="https://minecraft.wiki/w/Miscellaneous_colors#World_border">World border
+     * color</a>
+     */
+    private static final Color BORDER_COLOR = new Color(0x20, 0xA0, 0xFF);
+    /**
+     * The borders that have been built, so each one is only built once.
+     */
+    private final Map<BorderKey, Border> borders = new ConcurrentHashMap<>();
+    /**
+     * The borders each player should have, by border ID. Kept for players that Apollo hasn't
+     * registered yet, so they can be sent once it does.
+     */
+    private final Map<UUID, Map<String, Border>> wantedBorders = new ConcurrentHashMap<>();
+    /**
+     * The borders each player's client already has, by border ID.
+     */
+    private final Map<UUID, Map<String, Border>> sentBorders = new ConcurrentHashMap<>();
     
+    /**
+     * Creates the integration and starts listening for Apollo players.
+     */
+    LunarClientIntegration() {
+        EventBus.getBus().register(ApolloRegisterPlayerEvent.class, this::onApolloRegisterPlayer);
+        EventBus.getBus()
+                .register(ApolloUnregisterPlayerEvent.class, this::onApolloUnregisterPlayer);
+    }
     
     /**
      * Sets the world borders for the player for the other teams.
@@ -34,45 +69,22 @@ public class LunarClientIntegration implements Listener {
      * @param homeQuadrant     The quadrant the player's team is in.
      * @param ignoredWorldKeys The keys of the worlds to ignore.
      */
-    static void setWorldBorders(Entity player, double size, Quadrant homeQuadrant,
-                                Collection<NamespacedKey> ignoredWorldKeys) {
+    void setWorldBorders(Entity player, double size, Quadrant homeQuadrant,
+                         Collection<NamespacedKey> ignoredWorldKeys) {
         World world = player.getWorld();
         if (!(world.getEnvironment().equals(World.Environment.THE_END) ||
                 ignoredWorldKeys.contains(world.getKey()))) {
-            Apollo.getPlayerManager().getPlayer(player.getUniqueId()).ifPresent(apolloPlayer -> {
-                BorderModule borderModule = Apollo.getModuleManager().getModule(BorderModule.class);
-                for (Quadrant quadrant : Arrays.stream(Quadrant.values())
-                        .filter(quadrant -> !quadrant.equals(homeQuadrant)).toList()) {
-                    makeBorder(size, apolloPlayer, quadrant, world, borderModule, true);
+            Map<String, Border> wanted = HashMap.newHashMap(Quadrant.values().length - 1);
+            for (Quadrant quadrant : Quadrant.values()) {
+                if (quadrant != homeQuadrant) {
+                    Border border = getBorder(size, quadrant, world, true);
+                    wanted.put(border.getId(), border);
                 }
-            });
+            }
+            setWantedBorders(player.getUniqueId(), world, wanted);
         }
     }
     
-    /**
-     * Makes a border for the given player in the given quadrant.
-     *
-     * @param size         The size of the world.
-     * @param apolloPlayer The player to set the border for.
-     * @param quadrant     The quadrant to set the border in.
-     * @param world        The world to set the border in.
-     * @param borderModule The border module to use.
-     * @param cancelEntry  whether to cancel entry into the border.
-     */
-    private static void makeBorder(double size, Recipients apolloPlayer, Quadrant quadrant,
-                                   World world, BorderModule borderModule, boolean cancelEntry) {
-        double minCorner = WorldBorderController.AXIS_BUFFER_OFFSET / world.getCoordinateScale();
-        double maxCorner = size + minCorner;
-        // https://minecraft.wiki/w/Miscellaneous_colors#World_border
-        borderModule.displayBorder(apolloPlayer,
-                Border.builder().id("qw" + quadrant + world.getName()).world(world.getName())
-                        .cancelEntry(cancelEntry).cancelExit(false).canShrinkOrExpand(false)
-                        .color(new Color(0x20, 0xA0, 0xFF))
-                        .bounds(Cuboid2D.builder().minX(quadrant.xSign * minCorner)
-                                .minZ(quadrant.zSign * minCorner).maxX(quadrant.xSign * maxCorner)
-                                .maxZ(quadrant.zSign * maxCorner).build()).build());
-    }
-    
     /**
      * Sets the world borders for the game master, allowing travel through the borders.
      *
@@ -80,18 +92,118 @@ public class LunarClientIntegration implements Listener {
      * @param size             The size of the world.
      * @param ignoredWorldKeys The keys of the worlds to ignore.
      */
-    static void setGameMasterWorldBorders(Entity player, double size,
-                                          Collection<NamespacedKey> ignoredWorldKeys) {
+    void setGameMasterWorldBorders(Entity player, double size,
+                                   Collection<NamespacedKey> ignoredWorldKeys) {
         World world = player.getWorld();
         if (!(world.getEnvironment().equals(World.Environment.THE_END) ||
                 ignoredWorldKeys.contains(world.getKey()))) {
-            Apollo.getPlayerManager().getPlayer(player.getUniqueId()).ifPresent(apolloPlayer -> {
-                BorderModule borderModule = Apollo.getModuleManager().getModule(BorderModule.class);
-                for (Quadrant quadrant : Quadrant.values()) {
-                    makeBorder(size, apolloPlayer, quadrant, world, borderModule, false);
-                }
-            });
+            Map<String, Border> wanted = HashMap.newHashMap(Quadrant.values().length);
+            for (Quadrant quadrant : Quadrant.values()) {
+                Border border = getBorder(size, quadrant, world, false);
+                wanted.put(border.getId(), border);
+            }
+            setWantedBorders(player.getUniqueId(), world, wanted);
+        }
+    }
+    
+    /**
+     * Gets the border for a quadrant, building it if it hasn't been built yet.
+     *
+     * @param size        The size of the world.
+     * @param quadrant    The quadrant the border is for.
+     * @param world       The world the border is in.
+     * @param cancelEntry whether to cancel entry into the border.
+     * @return the border
+     */
+    private Border getBorder(double size, Quadrant quadrant, World world, boolean cancelEntry) {
+        return borders.computeIfAbsent(
+                new BorderKey(world.getName(), quadrant, cancelEntry, size), key -> {
+                    double minCorner =
+                            WorldBorderController.AXIS_BUFFER_OFFSET / world.getCoordinateScale();
+                    double maxCorner = size + minCorner;
+                    return Border.builder().id("qw" + quadrant + world.getName())
+                            .world(world.getName()).cancelEntry(cancelEntry).cancelExit(false)
+                            .canShrinkOrExpand(false).color(BORDER_COLOR)
+                            .bounds(Cuboid2D.builder().minX(quadrant.xSign * minCorner)
+                                    .minZ(quadrant.zSign * minCorner)
+                                    .maxX(quadrant.xSign * maxCorner)
+                                    .maxZ(quadrant.zSign * maxCorner).build()).build();
+                });
+    }
+    
+    /**
+     * Replaces the borders a player should have in a world, then sends the player any that have
+     * changed if Apollo has registered them. Borders in other worlds are kept.
+     *
+     * @param uniqueId the UUID of the player
+     * @param world    the world the borders are in
+     * @param wanted   the borders the player should have in the world, by ID
+     */
+    private void setWantedBorders(UUID uniqueId, World world, Map<String, Border> wanted) {
+        Map<String, Border> playerBorders =
+                wantedBorders.computeIfAbsent(uniqueId, ignored -> new ConcurrentHashMap<>());
+        playerBorders.values().removeIf(border -> border.getWorld().equals(world.getName()));
+        playerBorders.putAll(wanted);
+        Apollo.getPlayerManager().getPlayer(uniqueId).ifPresent(this::sendChangedBorders);
+    }
+    
+    /**
+     * Sends a player the borders they should have but don't, and removes the ones they shouldn't
+     * have.
+     *
+     * @param apolloPlayer the player to update
+     */
+    private void sendChangedBorders(ApolloPlayer apolloPlayer) {
+        UUID uniqueId = apolloPlayer.getUniqueId();
+        Map<String, Border> wanted = wantedBorders.getOrDefault(uniqueId, Map.of());
+        Map<String, Border> sent =
+                sentBorders.computeIfAbsent(uniqueId, ignored -> new ConcurrentHashMap<>());
+        BorderModule borderModule = Apollo.getModuleManager().getModule(BorderModule.class);
+        for (Iterator<String> iterator = sent.keySet().iterator(); iterator.hasNext(); ) {
+            String id = iterator.next();
+            if (!wanted.containsKey(id)) {
+                borderModule.removeBorder(apolloPlayer, id);
+                iterator.remove();
+            }
         }
+        for (Border border : wanted.values()) {
+            // Borders are only built once, so an unchanged border is the same object.
+            if (sent.put(border.getId(), border) != border) {
+                borderModule.displayBorder(apolloPlayer, border);
+            }
+        }
+    }
+    
+    /**
+     * Sends a player their borders once Apollo knows they are using Lunar Client.
+     *
+     * @param event the event that triggered this method
+     */
+    private void onApolloRegisterPlayer(ApolloRegisterPlayerEvent event) {
+        ApolloPlayer apolloPlayer = event.getPlayer();
+        sentBorders.remove(apolloPlayer.getUniqueId());
+        sendChangedBorders(apolloPlayer);
+    }
+    
+    /**
+     * Forgets which borders a player's client has once it leaves.
+     *
+     * @param event the event that triggered this method
+     */
+    private void onApolloUnregisterPlayer(ApolloUnregisterPlayerEvent event) {
+        sentBorders.remove(event.getPlayer().getUniqueId());
+    }
+    
+    /**
+     * Forgets a player's borders when they quit.
+     *
+     * @param event the event that triggered this method
+     */
+    @EventHandler
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        UUID uniqueId = event.getPlayer().getUniqueId();
+        wantedBorders.remove(uniqueId);
+        sentBorders.remove(uniqueId);
     }
     
     /**
@@ -100,14 +212,31 @@ public class LunarClientIntegration implements Listener {
      * @param event The event that triggered this method.
      */
     @EventHandler
-    public static void onGameStateChange(GameStateChangeEvent event) {
+    public void onGameStateChange(GameStateChangeEvent event) {
         GameState state = event.getState();
         Options options = Apollo.getModuleManager().getModule(ServerRuleModule.class).getOptions();
         options.set(ServerRuleModule.COMPETITIVE_GAME, state.equals(GameState.BATTLE));
         if (!state.equals(GameState.PREP)) {
-            for (ApolloPlayer player : Apollo.getPlayerManager().getPlayers()) {
-                Apollo.getModuleManager().getModule(BorderModule.class).resetBorders(player);
+            wantedBorders.clear();
+            BorderModule borderModule = Apollo.getModuleManager().getModule(BorderModule.class);
+            // Only players that were sent borders need them reset.
+            for (UUID uniqueId : sentBorders.keySet()) {
+                Apollo.getPlayerManager().getPlayer(uniqueId)
+                        .ifPresent(borderModule::resetBorders);
             }
+            sentBorders.clear();
         }
     }
+    
+    /**
+     * Identifies a border that has been built.
+     *
+     * @param worldName   the name of the world the border is in
+     * @param quadrant    the quadrant the border is for
+     * @param cancelEntry whether the border cancels entry
+     * @param size        the size of the border
+     */
+    private record BorderKey(String worldName, Quadrant quadrant, boolean cancelEntry,
+                             double size) {
+    }
 }
@@ -0,0 +1,421 @@
+package io.github.minus1over12.quadwars;
+
+import org.bukkit.Bukkit;
+import org.bukkit.NamespacedKey;
+import org.bukkit.World;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Keeps the game worlds of each match in a zip file, for highlights and disputes. The archive is
+ * written on its own low priority thread, reading the region files a piece at a time and no
+ * faster than the config allows, so the server's own disk access isn't starved. If the worlds are
+ * reset while the archive is being written, it carries on from where the reset moved the played
+ * chunk data to.
+ *
+ * @author War Pigeon
+ */
+final class MatchArchiver implements Listener {
+    /**
+     * The path to the archive settings in the config.
+     */
+    private static final String CONFIG_PATH = "archive";
+    /**
+     * The key for whether to archive matches.
+     */
+    private static final String ENABLED_KEY = "enabled";
+    /**
+     * The key for the most megabytes to read each second.
+     */
+    private static final String READ_LIMIT_KEY = "maxReadMegabytesPerSecond";
+    /**
+     * The most megabytes read each second if the config doesn't say.
+     */
+    private static final double DEFAULT_READ_LIMIT = 32;
+    /**
+     * The number of bytes in a megabyte.
+     */
+    private static final double BYTES_PER_MEGABYTE = 1024 * 1024;
+    /**
+     * How long to wait after saving the worlds before reading them, so the chunks queued to be
+     * written have reached the disk.
+     */
+    private static final long SAVE_DELAY_SECONDS = 5;
+    /**
+     * How long to wait for the archive thread to stop when shutting down.
+     */
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 5;
+    /**
+     * The size of the buffers used to read and write the files.
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+    /**
+     * The name of the manifest in the archive.
+     */
+    private static final String MANIFEST_NAME = "manifest.yml";
+    /**
+     * How archive file names show when the match ended.
+     */
+    private static final DateTimeFormatter FILE_NAME_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss").withZone(ZoneId.systemDefault());
+    /**
+     * The plugin used for scheduling tasks.
+     */
+    private final QuadWars plugin;
+    /**
+     * Where to log progress and problems.
+     */
+    private final Logger logger;
+    /**
+     * The keys of worlds to leave alone.
+     */
+    private final Collection<NamespacedKey> ignoredWorldKeys;
+    /**
+     * Keeps the chunk data of reset worlds around until the archive is written.
+     */
+    private final WorldResetter worldResetter;
+    /**
+     * The folder the archives are written to.
+     */
+    private final Path archivesFolder;
+    /**
+     * Whether to archive matches.
+     */
+    private final boolean enabled;
+    /**
+     * The most bytes to read each second, or 0 for no limit.
+     */
+    private final double readLimit;
+    /**
+     * The thread the archives are written on.
+     */
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "QuadWars Match Archiver");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+    
+    /**
+     * Creates a match archiver.
+     *
+     * @param plugin           the plugin to get settings from and use for scheduling tasks
+     * @param ignoredWorldKeys the keys of worlds to leave alone
+     * @param worldResetter    keeps the chunk data of reset worlds around until it is archived
+     */
+    MatchArchiver(@NotNull QuadWars plugin, @NotNull Collection<NamespacedKey> ignoredWorldKeys,
+                  @NotNull WorldResetter worldResetter) {
+        this.plugin = plugin;
+        logger = plugin.getLogger();
+        this.ignoredWorldKeys = ignoredWorldKeys;
+        this.worldResetter = worldResetter;
+        archivesFolder = plugin.getDataFolder().toPath().resolve("archives");
+        FileConfiguration config = plugin.getConfig();
+        ConfigurationSection section = config.getConfigurationSection(CONFIG_PATH);
+        if (section == null) {
+            enabled = false;
+            readLimit = 0;
+        } else {
+            enabled = section.getBoolean(ENABLED_KEY);
+            readLimit = Math.max(0, section.getDouble(READ_LIMIT_KEY, DEFAULT_READ_LIMIT)) *
+                    BYTES_PER_MEGABYTE;
+        }
+    }
+    
+    /**
+     * Saves the game worlds and starts archiving them when the match ends. Each world stops
+     * saving itself until its files have been read, so the archive doesn't get a region file the
+     * server is halfway through writing.
+     *
+     * @param event the event that triggered this method
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onGameStateChange(GameStateChangeEvent event) {
+        if (!enabled || event.getState() != GameState.POST_GAME) {
+            return;
+        }
+        Instant endedAt = Instant.now();
+        List<WorldSource> worlds = new ArrayList<>();
+        for (World world : Bukkit.getWorlds()) {
+            if (!ignoredWorldKeys.contains(world.getKey())) {
+                world.save();
+                boolean autoSave = world.isAutoSave();
+                world.setAutoSave(false);
+                worlds.add(new WorldSource(world.getName(), world.getWorldFolder().toPath(),
+                        world.getEnvironment(), world.getSeed(), autoSave));
+            }
+        }
+        worldResetter.holdRetired();
+        Bukkit.getAsyncScheduler().runDelayed(plugin, scheduledTask -> {
+            try {
+                writer.execute(() -> archive(worlds, endedAt));
+            } catch (RejectedExecutionException e) {
+                // Already shut down, so there won't be an archive.
+                worlds.forEach(this::resumeAutoSave);
+                worldResetter.releaseRetired();
+            }
+        }, SAVE_DELAY_SECONDS, TimeUnit.SECONDS);
+        logger.info("Archiving the match in the background");
+    }
+    
+    /**
+     * Stops writing the current archive, if there is one, and deletes what was written of it.
+     */
+    void shutdown() {
+        writer.shutdownNow();
+        try {
+            if (!writer.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                logger.warning("Timed out waiting for the match archive to stop");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /**
+     * Writes the archive of a match. The archive is written to a temporary file and moved into
+     * place once it is complete. Runs on the archive thread.
+     *
+     * @param worlds  the game worlds of the match
+     * @param endedAt when the match ended
+     */
+    private void archive(List<WorldSource> worlds, Instant endedAt) {
+        Path archive = archivesFolder.resolve("match-" + FILE_NAME_FORMAT.format(endedAt) + ".zip");
+        Path temp = archive.resolveSibling(archive.getFileName() + ".tmp");
+        long start = System.nanoTime();
+        int archived = 0;
+        try {
+            Files.createDirectories(archivesFolder);
+            YamlConfiguration manifest = new YamlConfiguration();
+            // World names can have dots in them, but not slashes.
+            manifest.options().pathSeparator('/');
+            manifest.set("plugin", plugin.toString());
+            manifest.set("endedAt", endedAt.toString());
+            ReadLimiter limiter = new ReadLimiter(readLimit);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            try (ZipOutputStream zip = new ZipOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temp), BUFFER_SIZE))) {
+                // Chunks in region files are already compressed, so compressing them harder is
+                // mostly wasted time.
+                zip.setLevel(Deflater.BEST_SPEED);
+                for (WorldSource world : worlds) {
+                    ConfigurationSection section = manifest.createSection("worlds/" + world.name());
+                    section.set("environment", world.environment().toString());
+                    section.set("seed", world.seed());
+                    section.set("files", archiveWorld(zip, world, limiter, buffer));
+                    resumeAutoSave(world);
+                    archived++;
+                }
+                zip.putNextEntry(new ZipEntry(MANIFEST_NAME));
+                zip.write(manifest.saveToString().getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+            GameStatePersistence.move(temp, archive);
+            logger.info("Archived the match to " + archive + " in " +
+                    Duration.ofNanos(System.nanoTime() - start).toSeconds() + " seconds");
+        } catch (IOException | InterruptedException e) {
+            if (e instanceof InterruptedException || Thread.currentThread().isInterrupted()) {
+                Thread.currentThread().interrupt();
+                logger.warning("The server stopped before the match was archived");
+            } else {
+                logger.log(Level.SEVERE, "Could not archive the match", e);
+            }
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException deleteException) {
+                logger.log(Level.WARNING, "Could not delete " + temp, deleteException);
+            }
+        } finally {
+            worlds.subList(archived, worlds.size()).forEach(this::resumeAutoSave);
+            worldResetter.releaseRetired();
+        }
+    }
+    
+    /**
+     * Lets a game world save itself again once its files have been read, if it did before the
+     * match ended.
+     *
+     * @param source the world
+     */
+    private void resumeAutoSave(WorldSource source) {
+        if (!source.autoSave()) {
+            return;
+        }
+        try {
+            Bukkit.getGlobalRegionScheduler().execute(plugin, () -> {
+                World world = Bukkit.getWorld(source.name());
+                if (world != null) {
+                    world.setAutoSave(true);
+                }
+            });
+        } catch (RuntimeException e) {
+            // The plugin is being disabled, and the server saves every world when it stops.
+            logger.log(Level.FINE, "Could not turn autosave back on for " + source.name(), e);
+        }
+    }
+    
+    /**
+     * Writes the chunk data folders and level file of one world to the archive.
+     *
+     * @param zip     the archive
+     * @param world   the world
+     * @param limiter keeps the reads under the limit
+     * @param buffer  the buffer to read the files with
+     * @return what was written, for the manifest
+     * @throws IOException          if the files could not be read or written
+     * @throws InterruptedException if the server stopped while waiting for the limit
+     */
+    private List<Map<String, Object>> archiveWorld(ZipOutputStream zip, WorldSource world,
+                                                   ReadLimiter limiter, byte[] buffer)
+            throws IOException, InterruptedException {
+        List<Path> files = new ArrayList<>();
+        synchronized (worldResetter.getSwapLock(world.name())) {
+            Path folder = worldResetter.getChunkDataFolder(world.name(), world.folder());
+            for (Path chunkFolder : WorldResetter.findChunkFolders(folder)) {
+                try (Stream<Path> paths = Files.walk(folder.resolve(chunkFolder.toString()))) {
+                    paths.filter(Files::isRegularFile).map(folder::relativize).forEach(files::add);
+                }
+            }
+            if (Files.exists(folder.resolve(WorldResetter.LEVEL_FILE_NAME))) {
+                files.add(Path.of(WorldResetter.LEVEL_FILE_NAME));
+            }
+        }
+        List<Map<String, Object>> written = new ArrayList<>(files.size());
+        for (Path file : files) {
+            String relative = file.toString().replace(file.getFileSystem().getSeparator(), "/");
+            ZipEntry entry = new ZipEntry(world.name() + "/" + relative);
+            // The reset waits for the file being read, rather than moving it mid-read.
+            synchronized (worldResetter.getSwapLock(world.name())) {
+                Path source = worldResetter.getChunkDataFolder(world.name(), world.folder())
+                        .resolve(file.toString());
+                if (!Files.exists(source)) {
+                    continue;
+                }
+                zip.putNextEntry(entry);
+                try (InputStream input = Files.newInputStream(source)) {
+                    copy(input, zip, limiter, buffer);
+                }
+                zip.closeEntry();
+            }
+            Map<String, Object> manifestEntry = new LinkedHashMap<>();
+            manifestEntry.put("path", relative);
+            manifestEntry.put("size", entry.getSize());
+            manifestEntry.put("crc32", Long.toHexString(entry.getCrc()));
+            written.add(manifestEntry);
+        }
+        return written;
+    }
+    
+    /**
+     * Copies a file into the archive a buffer at a time, keeping under the read limit.
+     *
+     * @param input   the file
+     * @param output  the archive
+     * @param limiter keeps the reads under the limit
+     * @param buffer  the buffer to read the file with
+     * @throws IOException          if the file could not be read or written
+     * @throws InterruptedException if the server stopped while waiting for the limit
+     */
+    private static void copy(InputStream input, OutputStream output, ReadLimiter limiter,
+                             byte[] buffer) throws IOException, InterruptedException {
+        int read;
+        while ((read = input.read(buffer)) != -1) {
+            output.write(buffer, 0, read);
+            limiter.acquire(read);
+        }
+    }
+    
+    /**
+     * A game world to archive.
+     *
+     * @param name        the name of the world
+     * @param folder      the folder of the world
+     * @param environment the dimension of the world
+     * @param seed        the seed of the world
+     * @param autoSave    whether the world saved itself before it was archived
+     */
+    private record WorldSource(String name, Path folder, World.Environment environment,
+                               long seed, boolean autoSave) {
+    }
+    
+    /**
+     * Sleeps as needed so bytes are read no faster than a limit, averaged since it was created.
+     */
+    private static final class ReadLimiter {
+        /**
+         * The number of nanoseconds in a second.
+         */
+        private static final double NANOS_PER_SECOND = 1_000_000_000;
+        /**
+         * The most bytes to read each second, or 0 for no limit.
+         */
+        private final double bytesPerSecond;
+        /**
+         * When the limiter was created, from {@link System#nanoTime()}.
+         */
+        private final long start = System.nanoTime();
+        /**
+         * How many bytes have been read.
+         */
+        private long bytesRead;
+        
+        /**
+         * Creates a read limiter.
+         *
+         * @param bytesPerSecond the most bytes to read each second, or 0 for no limit
+         */
+        ReadLimiter(double bytesPerSecond) {
+            this.bytesPerSecond = bytesPerSecond;
+        }
+        
+        /**
+         * Counts bytes that were read, and waits until reading them is under the limit.
+         *
+         * @param bytes the number of bytes read
+         * @throws InterruptedException if the thread was interrupted while waiting
+         */
+        void acquire(int bytes) throws InterruptedException {
+            if (bytesPerSecond <= 0) {
+                return;
+            }
+            bytesRead += bytes;
+            long ahead = (long) (bytesRead / bytesPerSecond * NANOS_PER_SECOND) -
+                    (System.nanoTime() - start);
+            if (ahead > 0) {
+                Thread.sleep(Duration.ofNanos(ahead));
+            }
+        }
+    }
+}
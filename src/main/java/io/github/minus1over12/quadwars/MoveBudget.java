@@ -0,0 +1,58 @@
+package io.github.minus1over12.quadwars;
+
+/**
+ * Remembers how far a player can move before their position needs to be checked against their
+ * quadrant's border again.
+ *
+ * @author War Pigeon
+ */
+final class MoveBudget {
+    /**
+     * The border the budget was worked out for.
+     */
+    private QuadrantBorder border;
+    /**
+     * The x coordinate the budget was worked out at.
+     */
+    private double anchorX;
+    /**
+     * The z coordinate the budget was worked out at.
+     */
+    private double anchorZ;
+    /**
+     * The square of the distance the player can move from the anchor.
+     */
+    private double safeDistanceSquared;
+    
+    /**
+     * Starts a new budget.
+     *
+     * @param border       the border the budget is for
+     * @param x            the x coordinate the player was known to be safe at
+     * @param z            the z coordinate the player was known to be safe at
+     * @param safeDistance how far the player can move before they need to be checked again
+     */
+    void reset(QuadrantBorder border, double x, double z, double safeDistance) {
+        this.border = border;
+        anchorX = x;
+        anchorZ = z;
+        safeDistanceSquared = safeDistance * safeDistance;
+    }
+    
+    /**
+     * Checks if a player is still within their budget.
+     *
+     * @param border the border the player has now
+     * @param x      the x coordinate the player is moving to
+     * @param z      the z coordinate the player is moving to
+     * @return true if the player can't have left the border
+     */
+    boolean covers(QuadrantBorder border, double x, double z) {
+        double xDistance = x - anchorX;
+        double zDistance = z - anchorZ;
+        // The border is compared by reference, so a new team, world, or border table means the
+        // budget no longer counts.
+        return this.border == border &&
+                xDistance * xDistance + zDistance * zDistance < safeDistanceSquared;
+    }
+}
@@ -0,0 +1,119 @@
+package io.github.minus1over12.quadwars;
+
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Registers listeners only while the game is in the phases they are for, and unregisters them
+ * when it leaves. A rule that only applies in one phase then adds nothing to the events it
+ * handles for the rest of the game.
+ *
+ * @author War Pigeon
+ */
+final class PhaseScopedListeners implements Listener {
+    /**
+     * The plugin the listeners are registered for.
+     */
+    private final Plugin plugin;
+    /**
+     * Registers the listeners, timing them if handler metrics are on.
+     */
+    private final HandlerMetrics handlerMetrics;
+    /**
+     * The listeners and the phases they are for.
+     */
+    private final List<Scoped> listeners = new ArrayList<>();
+    
+    /**
+     * Creates an empty set of phase scoped listeners.
+     *
+     * @param plugin         the plugin the listeners are registered for
+     * @param handlerMetrics registers the listeners, timing them if handler metrics are on
+     */
+    PhaseScopedListeners(@NotNull Plugin plugin, @NotNull HandlerMetrics handlerMetrics) {
+        this.plugin = plugin;
+        this.handlerMetrics = handlerMetrics;
+    }
+    
+    /**
+     * Adds a listener that should only be registered in some phases, registering it now if the
+     * game is in one of them.
+     *
+     * @param listener     the listener
+     * @param currentState the phase the game is in now
+     * @param first        a phase the listener is for
+     * @param rest         any other phases the listener is for
+     */
+    void add(@NotNull Listener listener, @NotNull GameState currentState, @NotNull GameState first,
+             @NotNull GameState... rest) {
+        Scoped scoped = new Scoped(listener, EnumSet.of(first, rest));
+        listeners.add(scoped);
+        scoped.update(currentState);
+    }
+    
+    /**
+     * Registers the listeners for the new phase and unregisters the rest. This runs first so the
+     * rules are in place before any other plugin reacts to the change.
+     *
+     * @param event the event that triggered this method
+     */
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onGameStateChange(GameStateChangeEvent event) {
+        for (Scoped scoped : listeners) {
+            scoped.update(event.getState());
+        }
+    }
+    
+    /**
+     * A listener and the phases it is for.
+     */
+    private final class Scoped {
+        /**
+         * The listener.
+         */
+        private final Listener listener;
+        /**
+         * The phases to register the listener in.
+         */
+        private final Set<GameState> phases;
+        /**
+         * Whether the listener is registered.
+         */
+        private boolean registered;
+        
+        /**
+         * Creates a scoped listener, not registered yet.
+         *
+         * @param listener the listener
+         * @param phases   the phases to register the listener in
+         */
+        Scoped(Listener listener, Set<GameState> phases) {
+            this.listener = listener;
+            this.phases = phases;
+        }
+        
+        /**
+         * Registers or unregisters the listener for a phase.
+         *
+         * @param state the phase the game is in
+         */
+        void update(GameState state) {
+            boolean wanted = phases.contains(state);
+            if (wanted && !registered) {
+                handlerMetrics.registerEvents(listener, plugin);
+            } else if (!wanted && registered) {
+                HandlerList.unregisterAll(listener);
+            }
+            registered = wanted;
+        }
+    }
+}
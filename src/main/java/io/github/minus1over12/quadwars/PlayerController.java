@@ -46,9 +46,21 @@ public class PlayerController implements Listener {
      * @param plugin the plugin creating this controller.
      */
     public PlayerController(QuadWars plugin) {
-        killOnQuit = plugin.getConfig().getBoolean("killOnQuit");
-        hardcore = plugin.getConfig().getBoolean(QuadWars.HARDCORE_CONFIG_PATH);
-        state = plugin.getGameState();
+        this(plugin.getGameState(), plugin.getConfig().getBoolean(QuadWars.HARDCORE_CONFIG_PATH),
+                plugin.getConfig().getBoolean("killOnQuit"));
+    }
+    
+    /**
+     * Creates a player controller from its settings.
+     *
+     * @param gameState  the current state of the game
+     * @param hardcore   if the plugin is running in hardcore mode
+     * @param killOnQuit if players should be killed if they quit in the battle phase
+     */
+    PlayerController(GameState gameState, boolean hardcore, boolean killOnQuit) {
+        this.killOnQuit = killOnQuit;
+        this.hardcore = hardcore;
+        state = gameState;
     }
     
     /**
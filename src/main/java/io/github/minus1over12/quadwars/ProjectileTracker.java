@@ -0,0 +1,205 @@
+package io.github.minus1over12.quadwars;
+
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.AbstractArrow;
+import org.bukkit.entity.Projectile;
+import org.bukkit.plugin.Plugin;
+
+import java.util.Arrays;
+
+/**
+ * Follows projectiles launched near an edge and removes any that fly out of their quadrant, so
+ * ender pearls, tridents, and arrows can't reach another team before they hit anything. Every
+ * projectile is checked from a single task, which only runs while something is being followed.
+ * Each projectile gets a distance it can fly before it could reach the edge, like
+ * {@link MoveBudget}, so most ticks only compare a distance.
+ *
+ * @author War Pigeon
+ */
+final class ProjectileTracker {
+    /**
+     * How many projectiles the tracker can hold before it needs to grow.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+    /**
+     * How much to take off a projectile's distance from the border when working out how far it
+     * can fly before being checked again.
+     */
+    private static final double SAFE_DISTANCE_MARGIN = 1;
+    /**
+     * The plugin used for scheduling the task.
+     */
+    private final Plugin plugin;
+    /**
+     * Runs {@link #tick()}, timed if handler metrics are on.
+     */
+    private final Runnable timedTick;
+    /**
+     * Reused to read where each projectile is, so the task doesn't make a location for each one.
+     */
+    private final Location location = new Location(null, 0, 0, 0);
+    /**
+     * The projectiles being followed. Only the first {@link #count} slots of this and the other
+     * arrays are used.
+     */
+    private Projectile[] projectiles = new Projectile[INITIAL_CAPACITY];
+    /**
+     * The world each projectile was launched in.
+     */
+    private World[] worlds = new World[INITIAL_CAPACITY];
+    /**
+     * The border of the quadrant each projectile was launched in.
+     */
+    private QuadrantBorder[] borders = new QuadrantBorder[INITIAL_CAPACITY];
+    /**
+     * The x coordinate each projectile was last checked at.
+     */
+    private double[] anchorX = new double[INITIAL_CAPACITY];
+    /**
+     * The z coordinate each projectile was last checked at.
+     */
+    private double[] anchorZ = new double[INITIAL_CAPACITY];
+    /**
+     * The square of the distance each projectile can fly from where it was last checked.
+     */
+    private double[] safeDistanceSquared = new double[INITIAL_CAPACITY];
+    /**
+     * How many projectiles are being followed.
+     */
+    private int count;
+    /**
+     * The running task, or null if nothing is being followed.
+     */
+    private ScheduledTask task;
+    
+    /**
+     * Creates a projectile tracker.
+     *
+     * @param plugin         the plugin used for scheduling the task
+     * @param handlerMetrics times the task if handler metrics are on
+     */
+    ProjectileTracker(Plugin plugin, HandlerMetrics handlerMetrics) {
+        this.plugin = plugin;
+        timedTick = handlerMetrics.time("ProjectileTracker.tick", this::tick);
+    }
+    
+    /**
+     * Starts following a projectile. The caller is responsible for not adding a projectile twice.
+     *
+     * @param projectile the projectile
+     * @param world      the world the projectile was launched in
+     * @param border     the border of the quadrant the projectile was launched in
+     * @param x          the x coordinate the projectile was launched at
+     * @param z          the z coordinate the projectile was launched at
+     */
+    void track(Projectile projectile, World world, QuadrantBorder border, double x, double z) {
+        if (count == projectiles.length) {
+            int capacity = count * 2;
+            projectiles = Arrays.copyOf(projectiles, capacity);
+            worlds = Arrays.copyOf(worlds, capacity);
+            borders = Arrays.copyOf(borders, capacity);
+            anchorX = Arrays.copyOf(anchorX, capacity);
+            anchorZ = Arrays.copyOf(anchorZ, capacity);
+            safeDistanceSquared = Arrays.copyOf(safeDistanceSquared, capacity);
+        }
+        projectiles[count] = projectile;
+        worlds[count] = world;
+        borders[count] = border;
+        setAnchor(count, border, x, z);
+        count++;
+        if (task == null) {
+            task = Bukkit.getGlobalRegionScheduler()
+                    .runAtFixedRate(plugin, scheduledTask -> timedTick.run(), 1, 1);
+        }
+    }
+    
+    /**
+     * Moves every projectile forward a tick, removing the ones that left their quadrant and
+     * dropping the ones that are gone, stuck, or in another world.
+     */
+    private void tick() {
+        // Go backwards so the last projectile can be moved into a removed projectile's slot.
+        for (int i = count - 1; i >= 0; i--) {
+            Projectile projectile = projectiles[i];
+            if (!projectile.isValid() ||
+                    projectile instanceof AbstractArrow arrow && arrow.isInBlock()) {
+                drop(i);
+                continue;
+            }
+            projectile.getLocation(location);
+            if (location.getWorld() != worlds[i]) {
+                drop(i);
+                continue;
+            }
+            double x = location.getX();
+            double z = location.getZ();
+            double xDistance = x - anchorX[i];
+            double zDistance = z - anchorZ[i];
+            if (xDistance * xDistance + zDistance * zDistance < safeDistanceSquared[i]) {
+                continue;
+            }
+            QuadrantBorder border = borders[i];
+            if (border.isInside(x, z)) {
+                setAnchor(i, border, x, z);
+            } else {
+                projectile.remove();
+                drop(i);
+            }
+        }
+        location.setWorld(null);
+        if (count == 0) {
+            cancel();
+        }
+    }
+    
+    /**
+     * Works out how far a projectile can fly from where it is before it needs to be checked
+     * again.
+     *
+     * @param slot   the slot of the projectile
+     * @param border the border of the quadrant the projectile was launched in
+     * @param x      the x coordinate of the projectile
+     * @param z      the z coordinate of the projectile
+     */
+    private void setAnchor(int slot, QuadrantBorder border, double x, double z) {
+        double safeDistance = Math.max(0, border.signedDistance(x, z) - SAFE_DISTANCE_MARGIN);
+        anchorX[slot] = x;
+        anchorZ[slot] = z;
+        safeDistanceSquared[slot] = safeDistance * safeDistance;
+    }
+    
+    /**
+     * Stops following a projectile, moving the last one into its slot.
+     *
+     * @param slot the slot of the projectile
+     */
+    private void drop(int slot) {
+        int last = --count;
+        projectiles[slot] = projectiles[last];
+        worlds[slot] = worlds[last];
+        borders[slot] = borders[last];
+        anchorX[slot] = anchorX[last];
+        anchorZ[slot] = anchorZ[last];
+        safeDistanceSquared[slot] = safeDistanceSquared[last];
+        projectiles[last] = null;
+        worlds[last] = null;
+        borders[last] = null;
+    }
+    
+    /**
+     * Stops the task and lets go of every projectile.
+     */
+    void cancel() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        Arrays.fill(projectiles, 0, count, null);
+        Arrays.fill(worlds, 0, count, null);
+        Arrays.fill(borders, 0, count, null);
+        count = 0;
+    }
+}
@@ -10,19 +10,15 @@ import org.bukkit.Bukkit;
 import org.bukkit.NamespacedKey;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
-import org.bukkit.configuration.file.FileConfiguration;
-import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.entity.Entity;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
-import org.bukkit.plugin.PluginManager;
 import org.bukkit.plugin.java.JavaPlugin;
 import org.bukkit.scoreboard.Scoreboard;
 import org.bukkit.scoreboard.Team;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.File;
-import java.io.IOException;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.Arrays;
@@ -32,6 +28,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 
@@ -53,10 +50,6 @@ public final class QuadWars extends JavaPlugin implements Listener {
      * The path to the hardcore configuration option.
      */
     static final String HARDCORE_CONFIG_PATH = "hardcore";
-    /**
-     * The path to the game state in the configuration.
-     */
-    private static final String GAME_STATE_PATH = "gameState";
     /**
      * The command string to set the game state.
      */
@@ -65,6 +58,18 @@ public final class QuadWars extends JavaPlugin implements Listener {
      * The command string to display the plugin information.
      */
     private static final String QUADWARS_COMMAND = "quadwars";
+    /**
+     * The subcommand string to check the alive team counts.
+     */
+    private static final String AUDIT_SUBCOMMAND = "audit";
+    /**
+     * The subcommand string to show the handler metrics.
+     */
+    private static final String STATS_SUBCOMMAND = "stats";
+    /**
+     * The argument to the stats subcommand that clears the handler metrics.
+     */
+    private static final String RESET_ARGUMENT = "reset";
     /**
      * The command string to transition the game state.
      */
@@ -82,9 +87,10 @@ public final class QuadWars extends JavaPlugin implements Listener {
      */
     private static final String COMMAND_NOT_SUPPORTED = "Command not supported.";
     /**
-     * The file to store the game state in.
+     * Saves and loads the game state.
      */
-    private final File gameStateFile = new File(getDataFolder(), "game-state.yml");
+    private final GameStatePersistence gameStatePersistence = new GameStatePersistence(
+            new File(getDataFolder(), "game-state.yml").toPath(), getLogger());
     /**
      * The control for teams.
      */
@@ -94,9 +100,25 @@ public final class QuadWars extends JavaPlugin implements Listener {
      */
     private WorldBorderController worldBorderControl;
     /**
-     * The configuration for the game state.
+     * Times the event handlers and repeating tasks, if turned on in the config.
+     */
+    private HandlerMetrics handlerMetrics;
+    /**
+     * Spreads out teleports to team spawns and the lobby.
+     */
+    private TeleportScheduler teleportScheduler;
+    /**
+     * The pre-generation job.
+     */
+    private QuadrantPregenerator pregenerator;
+    /**
+     * Resets the game worlds between matches.
      */
-    private YamlConfiguration gameStateConfig;
+    private WorldResetter worldResetter;
+    /**
+     * Archives the game worlds after each match.
+     */
+    private MatchArchiver matchArchiver;
     /**
      * The current game state.
      */
@@ -108,8 +130,11 @@ public final class QuadWars extends JavaPlugin implements Listener {
     
     @Override
     public void onLoad() {
+        // Worlds aren't loaded yet, so this is the only time the main world can be reset.
+        WorldResetter.applyPending(getDataFolder().toPath(),
+                getServer().getWorldContainer().toPath(), getLogger());
         saveDefaultConfig();
-        if (gameStateConfig == null) {
+        if (gameState == null) {
             reloadConfig();
         }
     }
@@ -117,77 +142,100 @@ public final class QuadWars extends JavaPlugin implements Listener {
     @Override
     public void onEnable() {
         // Plugin startup logic
+        handlerMetrics = new HandlerMetrics(getConfig().getBoolean(HandlerMetrics.CONFIG_PATH));
         metrics();
         getLogger().config("Game state is " + gameState);
-        LobbyWorldController lobbyWorldControl = new LobbyWorldController(this);
-        teamControl = new TeamController(this);
+        QuadrantMembership membership = new QuadrantMembership(this);
+        teleportScheduler = new TeleportScheduler(this, membership, handlerMetrics);
+        LobbyWorldController lobbyWorldControl =
+                new LobbyWorldController(this, teleportScheduler);
+        teamControl = new TeamController(this, membership, teleportScheduler);
+        if (gameState == GameState.PREP || gameState == GameState.BATTLE) {
+            // The game was already running before a restart, so nothing else will load the
+            // spawns and find the spawn points.
+            SpawnPrewarmer spawnPrewarmer = teamControl.getSpawnPrewarmer();
+            spawnPrewarmer.start();
+            spawnPrewarmer.settle();
+        }
         Collection<NamespacedKey> ignoredWorldKeys = Set.of(lobbyWorldControl.getLobbyWorldKey());
-        worldBorderControl = new WorldBorderController(this, ignoredWorldKeys);
+        LunarClientIntegration lunarClientIntegration =
+                Bukkit.getPluginManager().isPluginEnabled("Apollo-Bukkit") ?
+                        new LunarClientIntegration() : null;
+        worldBorderControl = new WorldBorderController(this, ignoredWorldKeys, membership,
+                teamControl.getSpawnPrewarmer(), lunarClientIntegration);
         Listener playerControl = new PlayerController(this);
         Listener worldControl = new WorldController(ignoredWorldKeys, this);
-        PluginManager pluginManager = getServer().getPluginManager();
-        pluginManager.registerEvents(lobbyWorldControl, this);
-        pluginManager.registerEvents(teamControl, this);
-        pluginManager.registerEvents(worldBorderControl, this);
-        pluginManager.registerEvents(playerControl, this);
-        pluginManager.registerEvents(worldControl, this);
-        pluginManager.registerEvents(this, this);
-        if (Bukkit.getPluginManager().isPluginEnabled("Apollo-Bukkit")) {
-            Listener lunarClientIntegration = new LunarClientIntegration();
-            pluginManager.registerEvents(lunarClientIntegration, this);
+        pregenerator = new QuadrantPregenerator(this, ignoredWorldKeys);
+        worldResetter =
+                new WorldResetter(this, ignoredWorldKeys, lobbyWorldControl.getLobbyWorldKey());
+        matchArchiver = new MatchArchiver(this, ignoredWorldKeys, worldResetter);
+        handlerMetrics.registerEvents(membership, this);
+        handlerMetrics.registerEvents(lobbyWorldControl, this);
+        handlerMetrics.registerEvents(teamControl, this);
+        handlerMetrics.registerEvents(teamControl.getSpawnPrewarmer(), this);
+        handlerMetrics.registerEvents(worldBorderControl, this);
+        handlerMetrics.registerEvents(playerControl, this);
+        handlerMetrics.registerEvents(worldControl, this);
+        handlerMetrics.registerEvents(pregenerator, this);
+        handlerMetrics.registerEvents(matchArchiver, this);
+        handlerMetrics.registerEvents(this, this);
+        if (lunarClientIntegration != null) {
+            handlerMetrics.registerEvents(lunarClientIntegration, this);
         }
+        PhaseScopedListeners phaseScopedListeners = new PhaseScopedListeners(this, handlerMetrics);
+        phaseScopedListeners.add(worldBorderControl.getPrepRules(), gameState, GameState.PREP);
+        handlerMetrics.registerEvents(phaseScopedListeners, this);
     }
     
     @Override
     public void onDisable() {
-        saveFileConfiguration(gameStateConfig, "Could not save game state file");
+        if (pregenerator != null) {
+            pregenerator.shutdown();
+        }
+        if (matchArchiver != null) {
+            matchArchiver.shutdown();
+        }
+        gameStatePersistence.save(gameState);
+        gameStatePersistence.close();
     }
     
     @Override
     public void reloadConfig() {
         super.reloadConfig();
-        gameStateConfig = YamlConfiguration.loadConfiguration(gameStateFile);
-        gameState = GameState.valueOf(gameStateConfig.getString(GAME_STATE_PATH));
+        gameState = gameStatePersistence.load();
     }
     
     @Override
     public void saveConfig() {
         super.saveConfig();
-        saveFileConfiguration(gameStateConfig, "Could not save game state file");
+        gameStatePersistence.save(gameState);
     }
     
     @Override
     public void saveDefaultConfig() {
         super.saveDefaultConfig();
         
-        if (!gameStateFile.exists()) {
-            FileConfiguration defaultStateConfig = new YamlConfiguration();
-            defaultStateConfig.set(GAME_STATE_PATH, GameState.PREGAME.toString());
-            saveFileConfiguration(defaultStateConfig, "Could not save default game state file");
+        if (!gameStatePersistence.exists()) {
+            gameStatePersistence.save(GameState.PREGAME);
         }
     }
     
     /**
-     * Saves the file configuration.
+     * Gets the current game state.
      *
-     * @param gameStateConfig the configuration to save
-     * @param errorMessage    the message to log if the save fails
+     * @return the current game state
      */
-    private void saveFileConfiguration(FileConfiguration gameStateConfig, String errorMessage) {
-        try {
-            gameStateConfig.save(gameStateFile);
-        } catch (IOException e) {
-            getLogger().log(Level.SEVERE, errorMessage, e);
-        }
+    GameState getGameState() {
+        return gameState;
     }
     
     /**
-     * Gets the current game state.
+     * Gets the handler metrics, which time things only if turned on in the config.
      *
-     * @return the current game state
+     * @return the handler metrics
      */
-    GameState getGameState() {
-        return gameState;
+    HandlerMetrics getHandlerMetrics() {
+        return handlerMetrics;
     }
     
     @Override
@@ -207,8 +255,30 @@ public final class QuadWars extends JavaPlugin implements Listener {
                 }
             }
             case QUADWARS_COMMAND -> {
-                sender.sendMessage(Component.text(this + " by War Pigeon"));
-                return true;
+                if (args.length == 0) {
+                    sender.sendMessage(Component.text(this + " by War Pigeon"));
+                    return true;
+                }
+                if (args.length == 1 && args[0].equalsIgnoreCase(AUDIT_SUBCOMMAND) &&
+                        sender.hasPermission(GAMEMASTER_PERMISSION)) {
+                    teamControl.auditAliveTeams(sender);
+                    return true;
+                }
+                if (args.length >= 1 && args.length <= 2 &&
+                        args[0].equalsIgnoreCase(STATS_SUBCOMMAND) &&
+                        sender.hasPermission(GAMEMASTER_PERMISSION)) {
+                    if (args.length == 1) {
+                        handlerMetrics.sendStats(sender);
+                        sender.sendMessage(Component.text("Teleports waiting to start: " +
+                                teleportScheduler.getQueueDepth()));
+                        return true;
+                    } else if (args[1].equalsIgnoreCase(RESET_ARGUMENT)) {
+                        handlerMetrics.reset();
+                        sender.sendMessage(Component.text("Handler metrics have been reset."));
+                        return true;
+                    }
+                }
+                return false;
             }
             case TRANSITION_COMMAND -> {
                 if (!transitionLock) {
@@ -216,19 +286,30 @@ public final class QuadWars extends JavaPlugin implements Listener {
                         transitionState(sender);
                         return true;
                     } else if (args.length == 1) {
-                        BossBar progressBar = BossBar.bossBar(Component.text(switch (gameState) {
+                        Component title = Component.text(switch (gameState) {
                             case PREGAME -> "Prep Phase Starts";
                             case PREP -> "Battle Phase Starts";
                             case BATTLE -> "Battle Phase Ends";
                             case POST_GAME -> "End of Post-Game Phase";
-                        }), 0, BossBar.Color.RED, BossBar.Overlay.PROGRESS);
+                        });
+                        BossBar progressBar = BossBar.bossBar(title, 0, BossBar.Color.RED,
+                                BossBar.Overlay.PROGRESS);
                         try {
                             Duration delay = Duration.ofSeconds(Long.parseLong(args[0]));
                             Instant executionTime = Instant.now();
                             Instant changeTime = executionTime.plus(delay);
                             progressBar.addViewer(getServer());
                             transitionLock = true;
+                            SpawnPrewarmer spawnPrewarmer = teamControl.getSpawnPrewarmer();
+                            if (gameState == GameState.PREGAME) {
+                                // Use the countdown to load the spawns before everyone is sent.
+                                spawnPrewarmer.start();
+                            }
                             Bukkit.getAsyncScheduler().runAtFixedRate(this, scheduledTask -> {
+                                progressBar.name(spawnPrewarmer.isWarming() ?
+                                        title.append(Component.text(" (loading spawns " +
+                                                (int) (spawnPrewarmer.getProgress() * 100) +
+                                                "%)")) : title);
                                 float progress = (float) (Instant.now().getEpochSecond() -
                                         executionTime.getEpochSecond()) /
                                         (changeTime.getEpochSecond() -
@@ -321,6 +402,12 @@ public final class QuadWars extends JavaPlugin implements Listener {
                 sender.sendMessage(Component.text("The current game state is " + gameState));
                 return true;
             }
+            case QuadrantPregenerator.PREGEN_COMMAND -> {
+                return pregenerator.processCommand(sender, args);
+            }
+            case WorldResetter.RESET_COMMAND -> {
+                return worldResetter.processCommand(sender, args);
+            }
             default -> throw new UnsupportedOperationException(COMMAND_NOT_SUPPORTED);
         }
         return false;
@@ -333,11 +420,17 @@ public final class QuadWars extends JavaPlugin implements Listener {
      */
     private void transitionState(@NotNull Audience sender) {
         switch (gameState) {
-            case PREGAME -> {
-                Bukkit.getScheduler().runTask(this, () -> getServer().getPluginManager()
-                        .callEvent(new GameStateChangeEvent(GameState.PREP)));
+            case PREGAME -> Bukkit.getScheduler().runTask(this, () -> {
+                // Checked on the server thread, where templates are started, since some of the
+                // game worlds are unloaded while they are copied.
+                if (worldResetter.isBusy()) {
+                    sender.sendMessage(Component.text("The game worlds are being reset or " +
+                            "copied, try again when they are done.").color(NamedTextColor.RED));
+                    return;
+                }
+                getServer().getPluginManager().callEvent(new GameStateChangeEvent(GameState.PREP));
                 sender.sendMessage(Component.text("Starting prep phase…"));
-            }
+            });
             case PREP -> {
                 Bukkit.getScheduler().runTask(this, () -> getServer().getPluginManager()
                         .callEvent(new GameStateChangeEvent(GameState.BATTLE)));
@@ -353,9 +446,37 @@ public final class QuadWars extends JavaPlugin implements Listener {
                     sender.sendMessage(Component.text("Starting post-game phase…"));
                 }
             }
-            case POST_GAME -> Bukkit.getScheduler().runTask(this,
-                    () -> getServer().getPluginManager()
-                            .callEvent(new GameStateChangeEvent(GameState.PREGAME)));
+            case POST_GAME -> Bukkit.getScheduler().runTask(this, () -> {
+                if (worldResetter.isEnabled()) {
+                    // Hold the pregame phase until the worlds are back, so nobody is sent to a
+                    // world that is being reset.
+                    transitionLock = true;
+                    sender.sendMessage(Component.text("Resetting the game worlds…"));
+                    CompletableFuture<Void> reset;
+                    try {
+                        reset = worldResetter.reset(sender);
+                    } catch (RuntimeException e) {
+                        reset = CompletableFuture.failedFuture(e);
+                    }
+                    reset.whenComplete((ignored, throwable) -> Bukkit.getScheduler().runTask(this,
+                            () -> {
+                                transitionLock = false;
+                                if (throwable == null) {
+                                    getServer().getPluginManager().callEvent(
+                                            new GameStateChangeEvent(GameState.PREGAME));
+                                } else {
+                                    getLogger().log(Level.SEVERE, "Could not reset the game " +
+                                            "worlds", throwable);
+                                    sender.sendMessage(Component.text("Could not reset the game " +
+                                            "worlds, check the console. The game is still in " +
+                                            "the post-game phase.").color(NamedTextColor.RED));
+                                }
+                            }));
+                } else {
+                    getServer().getPluginManager()
+                            .callEvent(new GameStateChangeEvent(GameState.PREGAME));
+                }
+            });
         }
     }
     
@@ -369,7 +490,17 @@ public final class QuadWars extends JavaPlugin implements Listener {
                         Arrays.stream(GameState.values()).map(GameState::toString).toList() :
                         List.of();
             }
-            case QUADWARS_COMMAND, TRANSITION_COMMAND, GET_STATE_COMMAND -> {
+            case QUADWARS_COMMAND -> {
+                if (!sender.hasPermission(GAMEMASTER_PERMISSION)) {
+                    return List.of();
+                } else if (args.length == 1) {
+                    return List.of(AUDIT_SUBCOMMAND, STATS_SUBCOMMAND);
+                } else if (args.length == 2 && args[0].equalsIgnoreCase(STATS_SUBCOMMAND)) {
+                    return List.of(RESET_ARGUMENT);
+                }
+                return List.of();
+            }
+            case TRANSITION_COMMAND, GET_STATE_COMMAND -> {
                 return List.of();
             }
             case WorldBorderController.WORLDBORDER_COMMAND -> {
@@ -393,6 +524,16 @@ public final class QuadWars extends JavaPlugin implements Listener {
                     }
                 }
             }
+            case QuadrantPregenerator.PREGEN_COMMAND -> {
+                return args.length == 1 ? List.of(QuadrantPregenerator.START_COMMAND,
+                        QuadrantPregenerator.PAUSE_COMMAND, QuadrantPregenerator.STATUS_COMMAND,
+                        QuadrantPregenerator.RESET_COMMAND) : List.of();
+            }
+            case WorldResetter.RESET_COMMAND -> {
+                return args.length == 1 ?
+                        List.of(WorldResetter.SNAPSHOT_COMMAND, WorldResetter.STATUS_COMMAND) :
+                        List.of();
+            }
             case JOIN_TEAM_COMMAND -> {
                 return args.length == 1 ?
                         Bukkit.getScoreboardManager().getMainScoreboard().getTeams().stream()
@@ -411,8 +552,7 @@ public final class QuadWars extends JavaPlugin implements Listener {
     @EventHandler
     public void onGameStateChange(GameStateChangeEvent event) {
         gameState = event.getState();
-        gameStateConfig.set(GAME_STATE_PATH, gameState.toString());
-        saveFileConfiguration(gameStateConfig, "Could not save game state file");
+        gameStatePersistence.save(gameState);
     }
     
     /**
@@ -423,5 +563,6 @@ public final class QuadWars extends JavaPlugin implements Listener {
         // You can find the plugin ids of your plugins on the page https://bstats.org/what-is-my-plugin-id
         int pluginId = 22364; // <-- Replace with the id of your plugin!
         Metrics metrics = new Metrics(this, pluginId);
+        handlerMetrics.addCharts(metrics);
     }
 }
@@ -0,0 +1,147 @@
+package io.github.minus1over12.quadwars;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.WorldBorder;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The world border geometry for one quadrant of one world. Instances are immutable apart from the
+ * world border they hand out, which must not be changed by callers.
+ *
+ * @author War Pigeon
+ */
+final class QuadrantBorder {
+    /**
+     * The amount of damage the world border should do.
+     */
+    private static final double WORLD_BORDER_DAMAGE = 0.5;
+    /**
+     * The quadrant this border is for.
+     */
+    private final Quadrant quadrant;
+    /**
+     * The coordinate scale of the world this border is for.
+     */
+    private final double coordinateScale;
+    /**
+     * The size of the border, already scaled for the world.
+     */
+    private final double size;
+    /**
+     * The configured size of a quadrant.
+     */
+    private final double worldBorderSize;
+    /**
+     * The virtual world border shared by everyone using this quadrant in this world.
+     */
+    private final WorldBorder worldBorder;
+    
+    /**
+     * Creates the border geometry for a quadrant.
+     *
+     * @param quadrant        the quadrant to make the border for
+     * @param coordinateScale the coordinate scale of the world
+     * @param worldBorderSize the configured size of a quadrant
+     */
+    private QuadrantBorder(Quadrant quadrant, double coordinateScale, double worldBorderSize) {
+        this.quadrant = quadrant;
+        this.coordinateScale = coordinateScale;
+        worldBorder = Bukkit.createWorldBorder();
+        //DO NOT SCALE THE CENTER!!
+        //The API does it for you
+        // The 128 part is for preventing accidental cross-quadrant portal linkage.
+        worldBorder.setCenter((worldBorderSize / 2) * quadrant.xSign +
+                        (WorldBorderController.AXIS_BUFFER_OFFSET * quadrant.xSign),
+                (worldBorderSize / 2) * quadrant.zSign +
+                        (WorldBorderController.AXIS_BUFFER_OFFSET * quadrant.zSign));
+        //The size does need to be scaled though. Thanks Bukkit.
+        worldBorder.setSize(worldBorderSize / coordinateScale);
+        worldBorder.setDamageAmount(WORLD_BORDER_DAMAGE);
+        size = worldBorder.getSize();
+        this.worldBorderSize = worldBorderSize;
+    }
+    
+    /**
+     * Creates the border geometry for a quadrant in a world.
+     *
+     * @param world           the world to make the border for
+     * @param quadrant        the quadrant to make the border for
+     * @param worldBorderSize the configured size of a quadrant
+     * @return the border geometry
+     */
+    static @NotNull QuadrantBorder of(@NotNull World world, Quadrant quadrant,
+                                      double worldBorderSize) {
+        return new QuadrantBorder(quadrant, world.getCoordinateScale(), worldBorderSize);
+    }
+    
+    /**
+     * Gets the quadrant this border is for.
+     *
+     * @return the quadrant
+     */
+    Quadrant getQuadrant() {
+        return quadrant;
+    }
+    
+    /**
+     * Gets the coordinate scale of the world this border is for.
+     *
+     * @return the coordinate scale
+     */
+    double getCoordinateScale() {
+        return coordinateScale;
+    }
+    
+    /**
+     * Gets the size of the border, scaled for the world.
+     *
+     * @return the size of the border
+     */
+    double getSize() {
+        return size;
+    }
+    
+    /**
+     * Gets the shared virtual world border for this quadrant. Do not modify it, everyone in the
+     * quadrant is using the same one.
+     *
+     * @return the world border
+     */
+    @NotNull WorldBorder getWorldBorder() {
+        return worldBorder;
+    }
+    
+    /**
+     * Checks if a location is inside this quadrant's border.
+     *
+     * @param location the location to check
+     * @return true if the location is inside the border
+     */
+    boolean isInside(@NotNull Location location) {
+        return isInside(location.getX(), location.getZ());
+    }
+    
+    /**
+     * Checks if a coordinate is inside this quadrant's border.
+     *
+     * @param x the x coordinate to check
+     * @param z the z coordinate to check
+     * @return true if the coordinate is inside the border
+     */
+    boolean isInside(double x, double z) {
+        return QuadrantContainment.isInside(x, z, coordinateScale, quadrant, worldBorderSize);
+    }
+    
+    /**
+     * Gets the distance from a coordinate to the nearest edge of this quadrant's border.
+     *
+     * @param x the x coordinate to check
+     * @param z the z coordinate to check
+     * @return the distance, positive inside the border and negative outside of it
+     */
+    double signedDistance(double x, double z) {
+        return QuadrantContainment.signedDistance(x, z, coordinateScale, quadrant, worldBorderSize);
+    }
+}
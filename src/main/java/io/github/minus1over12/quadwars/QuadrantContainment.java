@@ -0,0 +1,94 @@
+package io.github.minus1over12.quadwars;
+
+/**
+ * Allocation free math for checking if a coordinate is inside a team's quadrant. This mirrors
+ * what {@link org.bukkit.WorldBorder#isInside(org.bukkit.Location)} does with the shifted
+ * locations QuadWars used to build, so the results match what players see on their client.
+ *
+ * @author War Pigeon
+ */
+enum QuadrantContainment {
+    ;
+    
+    /**
+     * The furthest Minecraft lets a world border edge go from the origin.
+     */
+    private static final double MAX_EDGE = 29999984;
+    
+    /**
+     * Checks if a coordinate is inside a quadrant. The result is exactly the same as running
+     * {@link org.bukkit.WorldBorder#isInside(org.bukkit.Location)} on the quadrant's virtual
+     * border with a location shifted for the world's coordinate scale.
+     *
+     * @param x               the x coordinate to check
+     * @param z               the z coordinate to check
+     * @param coordinateScale the coordinate scale of the world the coordinate is in
+     * @param quadrant        the quadrant to check against
+     * @param worldBorderSize the configured size of a quadrant
+     * @return true if the coordinate is inside the quadrant
+     */
+    static boolean isInside(double x, double z, double coordinateScale, Quadrant quadrant,
+                            double worldBorderSize) {
+        double size = worldBorderSize / coordinateScale;
+        double centerX = (worldBorderSize / 2) * quadrant.xSign +
+                (WorldBorderController.AXIS_BUFFER_OFFSET * quadrant.xSign);
+        double centerZ = (worldBorderSize / 2) * quadrant.zSign +
+                (WorldBorderController.AXIS_BUFFER_OFFSET * quadrant.zSign);
+        if (coordinateScale != 1.0) {
+            // The virtual border doesn't scale its center like the real one does, so the
+            // coordinate gets moved instead. Take the center, subtract half the size of the
+            // border, then subtract the distance from the origin to the border.
+            x += centerX - quadrant.xSign * size / 2 -
+                    (WorldBorderController.AXIS_BUFFER_OFFSET / coordinateScale * quadrant.xSign);
+            z += centerZ - quadrant.zSign * size / 2 -
+                    (WorldBorderController.AXIS_BUFFER_OFFSET / coordinateScale * quadrant.zSign);
+        }
+        // Minecraft checks the block the coordinate is in, not the coordinate itself.
+        double blockX = Math.floor(x);
+        double blockZ = Math.floor(z);
+        return blockX >= clampEdge(centerX - size / 2.0) &&
+                blockX < clampEdge(centerX + size / 2.0) &&
+                blockZ >= clampEdge(centerZ - size / 2.0) &&
+                blockZ < clampEdge(centerZ + size / 2.0);
+    }
+    
+    /**
+     * Gets the distance from a coordinate to the nearest edge of a quadrant. The distance is
+     * positive inside the quadrant and negative outside of it, and is measured in the world's own
+     * coordinates. Unlike {@link #isInside(double, double, double, Quadrant, double)} this does not
+     * round to the block, so use that one when deciding if something is in or out.
+     *
+     * @param x               the x coordinate to check
+     * @param z               the z coordinate to check
+     * @param coordinateScale the coordinate scale of the world the coordinate is in
+     * @param quadrant        the quadrant to check against
+     * @param worldBorderSize the configured size of a quadrant
+     * @return the signed distance to the edge of the quadrant
+     */
+    static double signedDistance(double x, double z, double coordinateScale, Quadrant quadrant,
+                                 double worldBorderSize) {
+        double innerEdge = WorldBorderController.AXIS_BUFFER_OFFSET / coordinateScale;
+        double outerEdge = innerEdge + worldBorderSize / coordinateScale;
+        // Flip the coordinates into the positive quadrant so one set of edges works for all four.
+        double flippedX = x * quadrant.xSign;
+        double flippedZ = z * quadrant.zSign;
+        double xDistance = Math.min(flippedX - innerEdge, outerEdge - flippedX);
+        double zDistance = Math.min(flippedZ - innerEdge, outerEdge - flippedZ);
+        if (xDistance > 0 && zDistance > 0) {
+            return Math.min(xDistance, zDistance);
+        }
+        double xOutside = Math.min(xDistance, 0);
+        double zOutside = Math.min(zDistance, 0);
+        return -Math.sqrt(xOutside * xOutside + zOutside * zOutside);
+    }
+    
+    /**
+     * Clamps a border edge the same way Minecraft does.
+     *
+     * @param edge the edge to clamp
+     * @return the clamped edge
+     */
+    private static double clampEdge(double edge) {
+        return Math.min(MAX_EDGE, Math.max(-MAX_EDGE, edge));
+    }
+}
@@ -0,0 +1,201 @@
+package io.github.minus1over12.quadwars;
+
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerCommandPreprocessEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.server.ServerCommandEvent;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scoreboard.Scoreboard;
+import org.bukkit.scoreboard.Team;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps track of which quadrant each entity's team is in, so hot code doesn't need to look up
+ * the scoreboard team and parse its name.
+ *
+ * @author War Pigeon
+ */
+public class QuadrantMembership implements Listener {
+    /**
+     * Matches commands that could change the vanilla scoreboard teams, including ones run
+     * through /execute.
+     */
+    private static final Pattern TEAM_COMMAND =
+            Pattern.compile("(?:^/?|\\srun\\s+)(?:minecraft:)?team(?:\\s|$)");
+    /**
+     * The quadrant of every entity on a QuadWars team, keyed by the entity's UUID.
+     */
+    private final Map<UUID, Quadrant> quadrants = new ConcurrentHashMap<>();
+    /**
+     * Things to run after the index has been rebuilt.
+     */
+    private final List<Runnable> reconcileListeners = new CopyOnWriteArrayList<>();
+    /**
+     * The plugin used for scheduling tasks.
+     */
+    private final Plugin plugin;
+    
+    /**
+     * Creates a membership index and fills it from the vanilla scoreboard.
+     *
+     * @param plugin the plugin used for scheduling tasks
+     */
+    QuadrantMembership(Plugin plugin) {
+        this.plugin = plugin;
+        reconcile();
+    }
+    
+    /**
+     * Gets the quadrant of an entity's team.
+     *
+     * @param entity the entity to get the quadrant of
+     * @return the quadrant, or null if the entity is not on a QuadWars team
+     */
+    @Nullable Quadrant get(@NotNull Entity entity) {
+        return quadrants.get(entity.getUniqueId());
+    }
+    
+    /**
+     * Records that an entity has joined the team of a quadrant.
+     *
+     * @param entity   the entity that joined
+     * @param quadrant the quadrant of the team
+     */
+    void set(@NotNull Entity entity, @NotNull Quadrant quadrant) {
+        quadrants.put(entity.getUniqueId(), quadrant);
+    }
+    
+    /**
+     * Rebuilds the index from the teams on the main scoreboard.
+     */
+    void reconcile() {
+        Scoreboard scoreboard = Bukkit.getScoreboardManager().getMainScoreboard();
+        Map<UUID, Quadrant> found = new HashMap<>();
+        for (Quadrant quadrant : Quadrant.values()) {
+            Team team = scoreboard.getTeam(TeamController.TEAM_PREFIX + quadrant);
+            if (team != null) {
+                for (String entry : team.getEntries()) {
+                    UUID uniqueId = getUniqueId(entry);
+                    if (uniqueId != null) {
+                        found.put(uniqueId, quadrant);
+                    }
+                }
+            }
+        }
+        quadrants.keySet().retainAll(found.keySet());
+        quadrants.putAll(found);
+        for (Runnable listener : reconcileListeners) {
+            listener.run();
+        }
+    }
+    
+    /**
+     * Adds something to run each time the index is rebuilt from the scoreboard.
+     *
+     * @param listener the thing to run
+     */
+    void addReconcileListener(Runnable listener) {
+        reconcileListeners.add(listener);
+    }
+    
+    /**
+     * Gets the UUID a scoreboard entry refers to. Players are stored by name, and other entities
+     * are stored by UUID.
+     *
+     * @param entry the scoreboard entry
+     * @return the UUID, or null if the entry is a player the server doesn't know about
+     */
+    private static @Nullable UUID getUniqueId(String entry) {
+        try {
+            return UUID.fromString(entry);
+        } catch (IllegalArgumentException e) {
+            Player player = Bukkit.getPlayerExact(entry);
+            if (player != null) {
+                return player.getUniqueId();
+            }
+            OfflinePlayer offlinePlayer = Bukkit.getOfflinePlayerIfCached(entry);
+            return offlinePlayer == null ? null : offlinePlayer.getUniqueId();
+        }
+    }
+    
+    /**
+     * Refreshes a joining player's quadrant before anything else looks at it.
+     *
+     * @param event the event that triggered this method
+     */
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        Player player = event.getPlayer();
+        Team team = Bukkit.getScoreboardManager().getMainScoreboard().getEntityTeam(player);
+        Quadrant quadrant = team == null ? null : getQuadrant(team);
+        if (quadrant == null) {
+            quadrants.remove(player.getUniqueId());
+        } else {
+            quadrants.put(player.getUniqueId(), quadrant);
+        }
+    }
+    
+    /**
+     * Rebuilds the index after a player uses /team.
+     *
+     * @param event the event that triggered this method
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerCommand(PlayerCommandPreprocessEvent event) {
+        reconcileAfterCommand(event.getMessage());
+    }
+    
+    /**
+     * Rebuilds the index after the console or a command block uses /team.
+     *
+     * @param event the event that triggered this method
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onServerCommand(ServerCommandEvent event) {
+        reconcileAfterCommand(event.getCommand());
+    }
+    
+    /**
+     * Schedules the index to be rebuilt once a command that could change teams has run.
+     *
+     * @param command the command being run
+     */
+    private void reconcileAfterCommand(String command) {
+        if (TEAM_COMMAND.matcher(command).find()) {
+            Bukkit.getGlobalRegionScheduler().run(plugin, ignored -> reconcile());
+        }
+    }
+    
+    /**
+     * Gets the quadrant of a team.
+     *
+     * @param team the team to get the quadrant of
+     * @return the quadrant of the team, or null if it is not a QuadWars team
+     */
+    static @Nullable Quadrant getQuadrant(@NotNull Team team) {
+        String name = team.getName();
+        if (!name.startsWith(TeamController.TEAM_PREFIX)) {
+            return null;
+        }
+        try {
+            return Quadrant.valueOf(name.substring(TeamController.TEAM_PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
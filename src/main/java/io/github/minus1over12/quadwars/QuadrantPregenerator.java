@@ -0,0 +1,757 @@
+package io.github.minus1over12.quadwars;
+
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import net.kyori.adventure.audience.Audience;
+import net.kyori.adventure.bossbar.BossBar;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
+import org.bukkit.Bukkit;
+import org.bukkit.NamespacedKey;
+import org.bukkit.World;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.WorldUnloadEvent;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Generates the chunks of every quadrant ahead of time, so players exploring on the first day of
+ * the prep phase don't make the server generate them live. The axis buffer is skipped. Chunks are
+ * generated off the server thread, and how many are started each tick goes up and down with how
+ * long ticks are taking. Progress is saved to disk so the job carries on after a restart.
+ *
+ * @author War Pigeon
+ */
+final class QuadrantPregenerator implements Listener {
+    /**
+     * The command for the pre-generation job.
+     */
+    static final String PREGEN_COMMAND = "qwpregen";
+    /**
+     * The subcommand to start or resume the job.
+     */
+    static final String START_COMMAND = "start";
+    /**
+     * The subcommand to pause the job.
+     */
+    static final String PAUSE_COMMAND = "pause";
+    /**
+     * The subcommand to show the job's progress.
+     */
+    static final String STATUS_COMMAND = "status";
+    /**
+     * The subcommand to throw away the job's progress.
+     */
+    static final String RESET_COMMAND = "reset";
+    /**
+     * The path to the job's settings in the config.
+     */
+    private static final String CONFIG_PATH = "pregen";
+    /**
+     * The key for whether to run the job during the pregame phase.
+     */
+    private static final String AUTO_RUN_KEY = "autoRunInPregame";
+    /**
+     * The key for the tick time the job tries to stay under.
+     */
+    private static final String TARGET_MSPT_KEY = "targetMspt";
+    /**
+     * The key for the most chunks the job starts in one tick.
+     */
+    private static final String MAX_CHUNKS_PER_TICK_KEY = "maxChunksPerTick";
+    /**
+     * The path to each world's progress in the checkpoint file.
+     */
+    private static final String WORLDS_PATH = "worlds";
+    /**
+     * The tick time the job tries to stay under if the config doesn't say, in milliseconds.
+     */
+    private static final double DEFAULT_TARGET_MSPT = 40;
+    /**
+     * The most chunks started in one tick if the config doesn't say.
+     */
+    private static final int DEFAULT_MAX_CHUNKS_PER_TICK = 8;
+    /**
+     * How many chunks can be generating at once for each chunk that can start in a tick.
+     */
+    private static final int IN_FLIGHT_PER_CHUNK_PER_TICK = 8;
+    /**
+     * The fewest chunks started per tick, so the job never stops completely.
+     */
+    private static final double MIN_BUDGET = 0.05;
+    /**
+     * How far under the target the tick time has to be before more chunks are started each tick.
+     */
+    private static final double HEADROOM = 0.8;
+    /**
+     * How many ticks to wait between changing the budget and updating the boss bar.
+     */
+    private static final long ADJUST_INTERVAL = 20;
+    /**
+     * How many ticks to wait between checkpoints.
+     */
+    private static final long CHECKPOINT_INTERVAL = 20 * 30;
+    /**
+     * How much of each new rate measurement goes into the rate used for the ETA.
+     */
+    private static final double RATE_SMOOTHING = 0.2;
+    /**
+     * The number of ticks in a second.
+     */
+    private static final double TICKS_PER_SECOND = 20;
+    /**
+     * The number of blocks along each side of a chunk.
+     */
+    private static final int CHUNK_SIZE = 16;
+    /**
+     * The plugin used for scheduling the task.
+     */
+    private final Plugin plugin;
+    /**
+     * Where to log progress and problems.
+     */
+    private final Logger logger;
+    /**
+     * The keys of worlds to leave alone.
+     */
+    private final Collection<NamespacedKey> ignoredWorldKeys;
+    /**
+     * Runs {@link #tick()}, timed if handler metrics are on.
+     */
+    private final Runnable timedTick;
+    /**
+     * The file progress is saved to.
+     */
+    private final Path checkpointFile;
+    /**
+     * The file new checkpoints are written to before being moved into place.
+     */
+    private final Path tempFile;
+    /**
+     * Held while writing a checkpoint, so two writes don't mix.
+     */
+    private final Object writeLock = new Object();
+    /**
+     * The configured size of a quadrant.
+     */
+    private final double worldBorderSize;
+    /**
+     * Whether to run the job during the pregame phase.
+     */
+    private final boolean autoRun;
+    /**
+     * The tick time the job tries to stay under, in milliseconds.
+     */
+    private final double targetMspt;
+    /**
+     * The most chunks the job starts in one tick.
+     */
+    private final int maxChunksPerTick;
+    /**
+     * How far each world has got, by world name. Every step before the number is done.
+     */
+    private final Map<String, Long> progress = new LinkedHashMap<>();
+    /**
+     * The steps of the current world that still have chunks generating, and how many.
+     */
+    private final NavigableMap<Long, Integer> outstanding = new TreeMap<>();
+    /**
+     * Shows the job's progress to game masters.
+     */
+    private final BossBar bossBar =
+            BossBar.bossBar(Component.empty(), 0, BossBar.Color.GREEN, BossBar.Overlay.PROGRESS);
+    /**
+     * The world being generated, or null if the next one hasn't been picked yet.
+     */
+    private @Nullable WorldPlan current;
+    /**
+     * The next step of the current world to start.
+     */
+    private long nextIndex;
+    /**
+     * How many chunks to start each tick.
+     */
+    private double budget = 1;
+    /**
+     * Chunks that can be started but haven't been yet, so budgets under one still start some.
+     */
+    private double credit;
+    /**
+     * How many chunks are generating.
+     */
+    private int inFlight;
+    /**
+     * Counts up each time the job stops, so chunks that finish after it don't count.
+     */
+    private int run;
+    /**
+     * How many ticks the job has been running.
+     */
+    private long ticks;
+    /**
+     * How many steps were done when the rate was last measured.
+     */
+    private long lastDone = -1;
+    /**
+     * How many steps are done each second, smoothed.
+     */
+    private double rate;
+    /**
+     * Whether the job was started because the game entered the pregame phase.
+     */
+    private boolean autoStarted;
+    /**
+     * The running task, or null if the job isn't running.
+     */
+    private ScheduledTask task;
+    
+    /**
+     * Creates the pre-generation job, loading its checkpoint and starting it if it should run
+     * now.
+     *
+     * @param plugin           the plugin to get settings from and use for scheduling the task
+     * @param ignoredWorldKeys the keys of worlds to leave alone
+     */
+    QuadrantPregenerator(@NotNull QuadWars plugin,
+                         @NotNull Collection<NamespacedKey> ignoredWorldKeys) {
+        this.plugin = plugin;
+        logger = plugin.getLogger();
+        this.ignoredWorldKeys = ignoredWorldKeys;
+        timedTick = plugin.getHandlerMetrics().time("QuadrantPregenerator.tick", this::tick);
+        checkpointFile = plugin.getDataFolder().toPath().resolve("pregen.yml");
+        tempFile = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+        FileConfiguration config = plugin.getConfig();
+        worldBorderSize = config.getDouble("worldBorderSize");
+        ConfigurationSection section = config.getConfigurationSection(CONFIG_PATH);
+        if (section == null) {
+            autoRun = false;
+            targetMspt = DEFAULT_TARGET_MSPT;
+            maxChunksPerTick = DEFAULT_MAX_CHUNKS_PER_TICK;
+        } else {
+            autoRun = section.getBoolean(AUTO_RUN_KEY);
+            targetMspt = section.getDouble(TARGET_MSPT_KEY, DEFAULT_TARGET_MSPT);
+            maxChunksPerTick = Math.max(1,
+                    section.getInt(MAX_CHUNKS_PER_TICK_KEY, DEFAULT_MAX_CHUNKS_PER_TICK));
+        }
+        loadCheckpoint();
+        if (autoRun && plugin.getGameState() == GameState.PREGAME) {
+            start(true);
+        }
+    }
+    
+    /**
+     * Handles the pre-generation command.
+     *
+     * @param sender the sender of the command
+     * @param args   the arguments of the command
+     * @return false if the usage should be shown
+     */
+    boolean processCommand(@NotNull Audience sender, @NotNull String[] args) {
+        if (args.length != 1) {
+            return false;
+        }
+        switch (args[0].toLowerCase(Locale.ROOT)) {
+            case START_COMMAND -> sender.sendMessage(Component.text(start(false) ?
+                    "Pre-generation started." : "Pre-generation is already running."));
+            case PAUSE_COMMAND -> sender.sendMessage(Component.text(pause() ?
+                    "Pre-generation paused. Its progress has been saved." :
+                    "Pre-generation isn't running."));
+            case STATUS_COMMAND -> sendStatus(sender);
+            case RESET_COMMAND -> {
+                reset();
+                sender.sendMessage(Component.text(
+                        "Pre-generation progress has been cleared. It will start over next time."));
+            }
+            default -> {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Runs the job during the pregame phase if the config says to, and pauses it after if it was
+     * started that way.
+     *
+     * @param event the event that triggered this method
+     */
+    @EventHandler
+    public void onGameStateChange(GameStateChangeEvent event) {
+        if (event.getState() == GameState.PREGAME) {
+            if (autoRun) {
+                start(true);
+            }
+        } else if (autoStarted) {
+            pause();
+        }
+    }
+    
+    /**
+     * Stops generating a world that is unloading. The job moves on to the next world, and picks
+     * this one up again if it comes back.
+     *
+     * @param event the event that triggered this method
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onWorldUnload(WorldUnloadEvent event) {
+        if (current != null && current.world().equals(event.getWorld())) {
+            stopCurrent();
+            saveCheckpoint();
+        }
+    }
+    
+    /**
+     * Starts the job, carrying on from the last checkpoint.
+     *
+     * @param automatic whether the job is being started because of the pregame phase
+     * @return false if it was already running
+     */
+    boolean start(boolean automatic) {
+        if (task != null) {
+            return false;
+        }
+        autoStarted = automatic;
+        ticks = 0;
+        lastDone = -1;
+        rate = 0;
+        task = Bukkit.getGlobalRegionScheduler()
+                .runAtFixedRate(plugin, scheduledTask -> timedTick.run(), 1, 1);
+        logger.info("Pre-generation started");
+        return true;
+    }
+    
+    /**
+     * Pauses the job and saves its progress.
+     *
+     * @return false if it wasn't running
+     */
+    boolean pause() {
+        if (task == null) {
+            return false;
+        }
+        stop();
+        saveCheckpoint();
+        logger.info("Pre-generation paused");
+        return true;
+    }
+    
+    /**
+     * Pauses the job and throws away its progress.
+     */
+    void reset() {
+        if (task != null) {
+            stop();
+        }
+        progress.clear();
+        saveCheckpoint();
+    }
+    
+    /**
+     * Stops the job and saves its progress before the server thread waits on the disk, for when
+     * the plugin is disabled.
+     */
+    void shutdown() {
+        if (task != null) {
+            stop();
+        }
+        writeCheckpoint(checkpointToString());
+    }
+    
+    /**
+     * Stops the task and hides the boss bar, recording how far the current world got.
+     */
+    private void stop() {
+        task.cancel();
+        task = null;
+        autoStarted = false;
+        stopCurrent();
+        Bukkit.getServer().hideBossBar(bossBar);
+    }
+    
+    /**
+     * Stops generating the current world, recording how far it got. Chunks still generating are
+     * started again next time.
+     */
+    private void stopCurrent() {
+        if (current != null) {
+            progress.put(current.name(), getCurrentProgress());
+            current = null;
+        }
+        run++;
+        outstanding.clear();
+        inFlight = 0;
+        credit = 0;
+    }
+    
+    /**
+     * Starts as many chunks as the budget allows, and moves on to the next world when the current
+     * one is done.
+     */
+    private void tick() {
+        ticks++;
+        if (ticks % ADJUST_INTERVAL == 0) {
+            adjustBudget();
+            updateBossBar();
+        }
+        if (ticks % CHECKPOINT_INTERVAL == 0) {
+            saveCheckpoint();
+        }
+        if (current == null) {
+            current = nextPlan();
+            if (current == null) {
+                finish();
+                return;
+            }
+            nextIndex = progress.getOrDefault(current.name(), 0L);
+        }
+        WorldPlan plan = current;
+        credit = Math.min(credit + budget, maxChunksPerTick);
+        int maxInFlight = maxChunksPerTick * IN_FLIGHT_PER_CHUNK_PER_TICK;
+        while (credit >= 1 && inFlight < maxInFlight && nextIndex < plan.total()) {
+            credit -= request(plan, nextIndex++);
+        }
+        if (nextIndex >= plan.total() && outstanding.isEmpty()) {
+            progress.put(plan.name(), plan.total());
+            current = null;
+            logger.info("Pre-generated " + plan.name());
+        }
+    }
+    
+    /**
+     * Starts generating the chunks of one step in every quadrant. Each step is the same distance
+     * out from the inner corner of every quadrant, so the land around the spawns is done first and
+     * every team gets the same amount done.
+     *
+     * @param plan  the world being generated
+     * @param index the step
+     * @return how many chunks were started
+     */
+    private int request(WorldPlan plan, long index) {
+        // Steps go around squares of growing size: square k has 2k + 1 chunks in it.
+        long ring = (long) Math.sqrt(index);
+        while (ring * ring > index) {
+            ring--;
+        }
+        while ((ring + 1) * (ring + 1) <= index) {
+            ring++;
+        }
+        long position = index - ring * ring;
+        long xOffset = position <= ring ? ring : position - ring - 1;
+        long zOffset = position <= ring ? position : ring;
+        int started = 0;
+        int currentRun = run;
+        for (Quadrant quadrant : Quadrant.values()) {
+            if (xOffset < plan.count(quadrant.xSign) && zOffset < plan.count(quadrant.zSign)) {
+                started++;
+                inFlight++;
+                outstanding.merge(index, 1, Integer::sum);
+                plan.world().getChunkAtAsync(plan.chunk(quadrant.xSign, (int) xOffset),
+                        plan.chunk(quadrant.zSign, (int) zOffset), true).whenComplete(
+                        (chunk, throwable) -> complete(currentRun, index, throwable));
+            }
+        }
+        return started;
+    }
+    
+    /**
+     * Records a chunk finishing. Paper completes chunk futures on the server thread.
+     *
+     * @param chunkRun  the run the chunk was started in
+     * @param index     the step the chunk is part of
+     * @param throwable what went wrong, or null if the chunk was generated
+     */
+    private void complete(int chunkRun, long index, @Nullable Throwable throwable) {
+        if (chunkRun != run) {
+            return;
+        }
+        inFlight--;
+        outstanding.computeIfPresent(index, (ignored, remaining) ->
+                remaining == 1 ? null : remaining - 1);
+        if (throwable != null) {
+            logger.log(Level.WARNING, "Could not pre-generate a chunk", throwable);
+        }
+    }
+    
+    /**
+     * Starts more chunks each tick while ticks are well under the target, and halves how many
+     * when they are over it. Also measures how fast the job is going for the ETA.
+     */
+    private void adjustBudget() {
+        double mspt = Bukkit.getAverageTickTime();
+        if (mspt > targetMspt) {
+            budget = Math.max(MIN_BUDGET, budget / 2);
+        } else if (mspt < targetMspt * HEADROOM) {
+            budget = Math.min(maxChunksPerTick, budget + 1);
+        }
+        long done = getTotals()[0];
+        if (lastDone >= 0) {
+            double measured = (done - lastDone) * TICKS_PER_SECOND / ADJUST_INTERVAL;
+            rate = rate == 0 ? measured : rate + RATE_SMOOTHING * (measured - rate);
+        }
+        lastDone = done;
+    }
+    
+    /**
+     * Shows the job's progress and ETA to every game master.
+     */
+    private void updateBossBar() {
+        long[] totals = getTotals();
+        float fraction = totals[1] == 0 ? 1 : (float) totals[0] / totals[1];
+        String eta = rate > 0 ? formatDuration((long) ((totals[1] - totals[0]) / rate)) : "unknown";
+        bossBar.name(Component.text(String.format("Pre-generating %s: %.1f%% (ETA %s)",
+                current == null ? "" : current.name(), fraction * 100, eta)));
+        bossBar.progress(Math.clamp(fraction, 0f, 1f));
+        Bukkit.getServer().filterAudience(audience -> audience instanceof Player player &&
+                player.hasPermission(QuadWars.GAMEMASTER_PERMISSION)).showBossBar(bossBar);
+    }
+    
+    /**
+     * Stops the job once every world is done.
+     */
+    private void finish() {
+        stop();
+        saveCheckpoint();
+        logger.info("Pre-generation finished");
+        Bukkit.getServer().filterAudience(audience -> audience instanceof Player player &&
+                        player.hasPermission(QuadWars.GAMEMASTER_PERMISSION))
+                .sendMessage(Component.text("Pre-generation finished.", NamedTextColor.GREEN));
+    }
+    
+    /**
+     * Sends how far each world has got.
+     *
+     * @param sender who to send the status to
+     */
+    private void sendStatus(Audience sender) {
+        sender.sendMessage(Component.text(task == null ? "Pre-generation is paused." :
+                String.format("Pre-generation is running, starting %.2f chunks per tick at " +
+                        "%.1f ms per tick.", budget, Bukkit.getAverageTickTime())));
+        for (WorldPlan plan : getPlans()) {
+            long total = plan.total();
+            sender.sendMessage(Component.text(String.format("%s: %.1f%%", plan.name(),
+                    Math.min(getProgress(plan), total) * 100.0 / Math.max(1, total))));
+        }
+    }
+    
+    /**
+     * Gets the next world with steps left to do.
+     *
+     * @return the world, or null if every world is done
+     */
+    private @Nullable WorldPlan nextPlan() {
+        for (WorldPlan plan : getPlans()) {
+            if (getProgress(plan) < plan.total()) {
+                return plan;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Gets a plan for every world to generate. The End isn't split into quadrants, so it is left
+     * out.
+     *
+     * @return the plans
+     */
+    private List<WorldPlan> getPlans() {
+        return Bukkit.getWorlds().stream()
+                .filter(world -> world.getEnvironment() != World.Environment.THE_END &&
+                        !ignoredWorldKeys.contains(world.getKey()))
+                .map(world -> WorldPlan.of(world, worldBorderSize)).toList();
+    }
+    
+    /**
+     * Gets how far a world has got.
+     *
+     * @param plan the world
+     * @return every step before this is done
+     */
+    private long getProgress(WorldPlan plan) {
+        return current != null && current.world().equals(plan.world()) ? getCurrentProgress() :
+                progress.getOrDefault(plan.name(), 0L);
+    }
+    
+    /**
+     * Gets how far the current world has got, not counting steps with chunks still generating.
+     *
+     * @return every step before this is done
+     */
+    private long getCurrentProgress() {
+        return outstanding.isEmpty() ? nextIndex : outstanding.firstKey();
+    }
+    
+    /**
+     * Adds up the steps of every world.
+     *
+     * @return the steps done, then the steps in total
+     */
+    private long[] getTotals() {
+        long done = 0;
+        long total = 0;
+        for (WorldPlan plan : getPlans()) {
+            done += Math.min(getProgress(plan), plan.total());
+            total += plan.total();
+        }
+        return new long[]{done, total};
+    }
+    
+    /**
+     * Formats a number of seconds as hours, minutes, and seconds.
+     *
+     * @param seconds the number of seconds
+     * @return the formatted duration
+     */
+    private static String formatDuration(long seconds) {
+        return String.format("%d:%02d:%02d", seconds / 3600, seconds / 60 % 60, seconds % 60);
+    }
+    
+    /**
+     * Loads the progress of each world from the checkpoint file, if there is one.
+     */
+    private void loadCheckpoint() {
+        if (!Files.exists(checkpointFile)) {
+            return;
+        }
+        try {
+            YamlConfiguration checkpoint = new YamlConfiguration();
+            checkpoint.loadFromString(Files.readString(checkpointFile, StandardCharsets.UTF_8));
+            ConfigurationSection worlds = checkpoint.getConfigurationSection(WORLDS_PATH);
+            if (worlds != null) {
+                for (String worldName : worlds.getKeys(false)) {
+                    progress.put(worldName, Math.max(0, worlds.getLong(worldName)));
+                }
+            }
+        } catch (IOException | InvalidConfigurationException e) {
+            logger.log(Level.WARNING, "Could not read " + checkpointFile +
+                    ", pre-generation will start over", e);
+        }
+    }
+    
+    /**
+     * Saves the progress of each world off the server thread.
+     */
+    private void saveCheckpoint() {
+        String checkpoint = checkpointToString();
+        Bukkit.getAsyncScheduler().runNow(plugin, ignored -> writeCheckpoint(checkpoint));
+    }
+    
+    /**
+     * Gets the progress of each world as the contents of a checkpoint file.
+     *
+     * @return the checkpoint
+     */
+    private String checkpointToString() {
+        if (current != null) {
+            progress.put(current.name(), getCurrentProgress());
+        }
+        YamlConfiguration checkpoint = new YamlConfiguration();
+        checkpoint.createSection(WORLDS_PATH, progress);
+        return checkpoint.saveToString();
+    }
+    
+    /**
+     * Writes a checkpoint to a temporary file and moves it into place, so a crash can't leave a
+     * half written file behind.
+     *
+     * @param checkpoint the contents of the checkpoint file
+     */
+    private void writeCheckpoint(String checkpoint) {
+        synchronized (writeLock) {
+            try {
+                Files.createDirectories(checkpointFile.getParent());
+                Files.writeString(tempFile, checkpoint, StandardCharsets.UTF_8);
+                GameStatePersistence.move(tempFile, checkpointFile);
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, "Could not save pre-generation progress", e);
+            }
+        }
+    }
+    
+    /**
+     * The chunks to generate in one world. The chunks on each side of an axis run from the ones
+     * touching the buffer out to the ones touching the outer edge of the quadrants.
+     *
+     * @param world         the world
+     * @param positiveMin   the chunk coordinate on the positive side closest to the axis
+     * @param positiveCount the number of chunks on the positive side
+     * @param negativeMax   the chunk coordinate on the negative side closest to the axis
+     * @param negativeCount the number of chunks on the negative side
+     * @param total         the number of steps, enough to cover the bigger side in both
+     *                      directions
+     */
+    private record WorldPlan(World world, int positiveMin, int positiveCount, int negativeMax,
+                             int negativeCount, long total) {
+        /**
+         * Works out the chunks to generate in a world.
+         *
+         * @param world           the world
+         * @param worldBorderSize the configured size of a quadrant
+         * @return the plan
+         */
+        static WorldPlan of(World world, double worldBorderSize) {
+            double coordinateScale = world.getCoordinateScale();
+            double innerEdge = WorldBorderController.AXIS_BUFFER_OFFSET / coordinateScale;
+            double outerEdge = innerEdge + worldBorderSize / coordinateScale;
+            int positiveMin = (int) Math.floor(innerEdge / CHUNK_SIZE);
+            int positiveMax = (int) Math.ceil(outerEdge / CHUNK_SIZE) - 1;
+            int negativeMin = (int) Math.floor(-outerEdge / CHUNK_SIZE);
+            int negativeMax = (int) Math.ceil(-innerEdge / CHUNK_SIZE) - 1;
+            int positiveCount = positiveMax - positiveMin + 1;
+            int negativeCount = negativeMax - negativeMin + 1;
+            long side = Math.max(positiveCount, negativeCount);
+            return new WorldPlan(world, positiveMin, positiveCount, negativeMax, negativeCount,
+                    side * side);
+        }
+        
+        /**
+         * Gets the name of the world, which the checkpoint is keyed by.
+         *
+         * @return the name
+         */
+        String name() {
+            return world.getName();
+        }
+        
+        /**
+         * Gets the number of chunks on one side of an axis.
+         *
+         * @param sign the side of the axis
+         * @return the number of chunks
+         */
+        int count(int sign) {
+            return sign > 0 ? positiveCount : negativeCount;
+        }
+        
+        /**
+         * Gets a chunk coordinate on one side of an axis.
+         *
+         * @param sign   the side of the axis
+         * @param offset how many chunks out from the axis
+         * @return the chunk coordinate
+         */
+        int chunk(int sign, int offset) {
+            return sign > 0 ? positiveMin + offset : negativeMax - offset;
+        }
+    }
+}
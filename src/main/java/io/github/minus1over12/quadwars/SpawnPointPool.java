@@ -0,0 +1,253 @@
+package io.github.minus1over12.quadwars;
+
+import org.bukkit.Chunk;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.Tag;
+import org.bukkit.World;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.block.data.Waterlogged;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+
+/**
+ * A pool of safe surface spots around each team's spawn, so players spread out instead of all
+ * landing on the same block. The spots are worked out from chunk snapshots off the server thread,
+ * and handed out in turn on the server thread.
+ *
+ * @author War Pigeon
+ */
+final class SpawnPointPool {
+    /**
+     * How far apart spots are, in blocks.
+     */
+    private static final int SPACING = 4;
+    /**
+     * The most spots to keep for each team.
+     */
+    private static final int MAX_POINTS = 64;
+    /**
+     * How close to the inner edge of the quadrant border a spot can be, in blocks.
+     */
+    private static final int BORDER_MARGIN = 8;
+    /**
+     * Blocks that are dangerous or awkward to stand on or in.
+     */
+    private static final Set<Material> UNSAFE = EnumSet.of(Material.LAVA, Material.WATER,
+            Material.MAGMA_BLOCK, Material.CACTUS, Material.CAMPFIRE, Material.SOUL_CAMPFIRE,
+            Material.FIRE, Material.SOUL_FIRE, Material.SWEET_BERRY_BUSH, Material.POWDER_SNOW,
+            Material.POINTED_DRIPSTONE, Material.WITHER_ROSE, Material.BUBBLE_COLUMN,
+            Material.COBWEB);
+    /**
+     * The spots for each team by quadrant ordinal. Only used on the server thread.
+     */
+    private final Location[][] points = new Location[Quadrant.values().length][];
+    /**
+     * The index of the next spot to hand out for each team by quadrant ordinal.
+     */
+    private final int[] next = new int[Quadrant.values().length];
+    /**
+     * The top of every column in each team's spawn chunk by quadrant ordinal, for when none of
+     * the spots can be used. Only used on the server thread.
+     */
+    private final Location[][] columns = new Location[Quadrant.values().length][];
+    
+    /**
+     * Works out the safe spots for a team from the chunks around its spawn. Safe to call off the
+     * server thread.
+     *
+     * @param world     the world the chunks are in
+     * @param quadrant  the team to find spots for
+     * @param snapshots snapshots of the chunks around the team's spawn, with the highest block
+     *                  heights included
+     * @return the spots, in a random order
+     */
+    static @NotNull Location[] findPoints(@NotNull World world, @NotNull Quadrant quadrant,
+                                          @NotNull Collection<ChunkSnapshot> snapshots) {
+        int minimumInset = WorldBorderController.AXIS_BUFFER_OFFSET + BORDER_MARGIN;
+        int minHeight = world.getMinHeight();
+        int maxHeight = world.getMaxHeight();
+        List<Location> found = new ArrayList<>();
+        for (ChunkSnapshot snapshot : snapshots) {
+            int chunkX = snapshot.getX() << 4;
+            int chunkZ = snapshot.getZ() << 4;
+            for (int x = SPACING / 2; x < 16; x += SPACING) {
+                for (int z = SPACING / 2; z < 16; z += SPACING) {
+                    int blockX = chunkX + x;
+                    int blockZ = chunkZ + z;
+                    if (blockX * quadrant.xSign < minimumInset ||
+                            blockZ * quadrant.zSign < minimumInset) {
+                        continue;
+                    }
+                    int y = snapshot.getHighestBlockYAt(x, z);
+                    if (y > minHeight && y + 2 < maxHeight && isSafe(snapshot, x, y, z)) {
+                        found.add(new Location(world, blockX + 0.5, y + 1, blockZ + 0.5));
+                    }
+                }
+            }
+        }
+        Collections.shuffle(found, ThreadLocalRandom.current());
+        return found.subList(0, Math.min(found.size(), MAX_POINTS)).toArray(Location[]::new);
+    }
+    
+    /**
+     * Works out where a player would stand on top of every column of a chunk.
+     *
+     * @param world    the world the chunk is in
+     * @param snapshot a snapshot of the chunk, with the highest block heights included
+     * @return the top of each column
+     */
+    static @NotNull Location[] findColumns(@NotNull World world, @NotNull ChunkSnapshot snapshot) {
+        int chunkX = snapshot.getX() << 4;
+        int chunkZ = snapshot.getZ() << 4;
+        Location[] found = new Location[16 * 16];
+        for (int x = 0; x < 16; x++) {
+            for (int z = 0; z < 16; z++) {
+                found[x * 16 + z] = new Location(world, chunkX + x + 0.5,
+                        snapshot.getHighestBlockYAt(x, z) + 1, chunkZ + z + 0.5);
+            }
+        }
+        return found;
+    }
+    
+    /**
+     * Replaces the column tops of a team's spawn chunk. Only call this from the server thread.
+     *
+     * @param quadrant    the team the columns are for
+     * @param teamColumns the top of each column
+     */
+    void setColumns(@NotNull Quadrant quadrant, @NotNull Location[] teamColumns) {
+        columns[quadrant.ordinal()] = teamColumns;
+    }
+    
+    /**
+     * Picks a random column top in a team's spawn chunk.
+     *
+     * @param quadrant the team to get a column for
+     * @return the top of the column, or null if the spawn chunk hasn't been loaded
+     */
+    @Nullable Location randomColumn(@NotNull Quadrant quadrant) {
+        Location[] teamColumns = columns[quadrant.ordinal()];
+        if (teamColumns == null) {
+            return null;
+        }
+        return teamColumns[ThreadLocalRandom.current().nextInt(teamColumns.length)].clone();
+    }
+    
+    /**
+     * Replaces the spots for a team. Only call this from the server thread.
+     *
+     * @param quadrant   the team the spots are for
+     * @param teamPoints the spots
+     */
+    void set(@NotNull Quadrant quadrant, @NotNull Location[] teamPoints) {
+        points[quadrant.ordinal()] = teamPoints;
+        next[quadrant.ordinal()] = 0;
+    }
+    
+    /**
+     * Checks if a player can safely stand on a block.
+     *
+     * @param snapshot the chunk the block is in
+     * @param x        the x coordinate in the chunk
+     * @param y        the y coordinate of the block to stand on
+     * @param z        the z coordinate in the chunk
+     * @return true if the block is solid and there is room above it
+     */
+    private static boolean isSafe(ChunkSnapshot snapshot, int x, int y, int z) {
+        Material ground = snapshot.getBlockType(x, y, z);
+        if (!ground.isSolid() || UNSAFE.contains(ground) || Tag.LEAVES.isTagged(ground)) {
+            return false;
+        }
+        for (int dy = 1; dy <= 2; dy++) {
+            BlockData above = snapshot.getBlockData(x, y + dy, z);
+            Material material = above.getMaterial();
+            if (material.isSolid() || UNSAFE.contains(material) ||
+                    above instanceof Waterlogged waterlogged && waterlogged.isWaterlogged()) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Hands out the next spot for a team.
+     *
+     * @param quadrant the team to get a spot for
+     * @return a spot, or null if the pool for the team is empty
+     */
+    @Nullable Location next(@NotNull Quadrant quadrant) {
+        return next(quadrant, point -> true);
+    }
+    
+    /**
+     * Hands out the next spot for a team that can be used. Spots that can't be used are skipped
+     * for now, without using up a turn.
+     *
+     * @param quadrant the team to get a spot for
+     * @param usable   checks if a spot can be used
+     * @return a spot, or null if none of the team's spots can be used
+     */
+    @Nullable Location next(@NotNull Quadrant quadrant, @NotNull Predicate<Location> usable) {
+        Location[] teamPoints = points[quadrant.ordinal()];
+        if (teamPoints == null) {
+            return null;
+        }
+        int start = next[quadrant.ordinal()];
+        for (int i = 0; i < teamPoints.length; i++) {
+            int index = (start + i) % teamPoints.length;
+            if (usable.test(teamPoints[index])) {
+                next[quadrant.ordinal()] = index + 1;
+                return teamPoints[index].clone();
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Gets the chunks that have a spot in them, for every team.
+     *
+     * @return the chunk keys of the chunks
+     */
+    @NotNull Set<Long> getChunkKeys() {
+        Set<Long> chunkKeys = new HashSet<>();
+        for (Location[] teamPoints : points) {
+            if (teamPoints != null) {
+                for (Location point : teamPoints) {
+                    chunkKeys.add(getChunkKey(point));
+                }
+            }
+        }
+        return chunkKeys;
+    }
+    
+    /**
+     * Gets the key of the chunk a spot is in.
+     *
+     * @param point the spot
+     * @return the chunk key
+     */
+    static long getChunkKey(@NotNull Location point) {
+        return Chunk.getChunkKey(point.getBlockX() >> 4, point.getBlockZ() >> 4);
+    }
+    
+    /**
+     * Empties the pool.
+     */
+    void clear() {
+        Arrays.fill(points, null);
+        Arrays.fill(columns, null);
+    }
+}
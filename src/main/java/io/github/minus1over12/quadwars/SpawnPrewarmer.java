@@ -0,0 +1,331 @@
+package io.github.minus1over12.quadwars;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.Listener;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Logger;
+
+/**
+ * Loads the chunks around each team's spawn before players are sent there, so the teleports at the
+ * start of the prep phase don't load them all on the server thread at once. The chunks are held
+ * loaded with plugin tickets until the players have settled in. The loaded chunks are also used to
+ * find spread out, safe spawn points for each team. The chunks with spawn points in them, and the
+ * chunk each team spawns in, stay loaded until the game is over, so respawning never has to wait
+ * for them.
+ *
+ * @author War Pigeon
+ */
+final class SpawnPrewarmer implements Listener {
+    /**
+     * The config path for how many chunks around each spawn to load.
+     */
+    static final String RADIUS_CONFIG_PATH = "spawnPrewarmRadius";
+    /**
+     * How long to wait after the teleports finish before letting the outer chunks unload, in ticks.
+     */
+    private static final long SETTLE_TICKS = 200;
+    /**
+     * The plugin the chunk tickets belong to.
+     */
+    private final Plugin plugin;
+    /**
+     * The world teams spawn in.
+     */
+    private final World world;
+    /**
+     * How many chunks out from each spawn chunk to load.
+     */
+    private final int radius;
+    /**
+     * The logger for the plugin.
+     */
+    private final Logger logger;
+    /**
+     * The chunks this has a ticket on, as chunk keys.
+     */
+    private final Set<Long> ticketedChunks = new HashSet<>();
+    /**
+     * Safe spots around each team's spawn, found from the loaded chunks.
+     */
+    private final SpawnPointPool spawnPoints = new SpawnPointPool();
+    /**
+     * How many chunks are being warmed.
+     */
+    private int totalChunks;
+    /**
+     * How many chunks have finished loading.
+     */
+    private volatile int loadedChunks;
+    /**
+     * How many teams have had their spawn points found since the warm-up started.
+     */
+    private int foundPools;
+    /**
+     * When the warm-up started, in nanoseconds.
+     */
+    private long startTime;
+    /**
+     * Counts up each time the tickets are released, so loads from an earlier warm-up don't add
+     * tickets after they have been released.
+     */
+    private int generation;
+    /**
+     * If the chunks have been, or are being, warmed.
+     */
+    private boolean started;
+    
+    /**
+     * Creates a spawn prewarmer.
+     *
+     * @param plugin the plugin the chunk tickets belong to
+     * @param world  the world teams spawn in
+     */
+    SpawnPrewarmer(@NotNull Plugin plugin, @NotNull World world) {
+        this.plugin = plugin;
+        this.world = world;
+        this.radius = Math.max(0, plugin.getConfig().getInt(RADIUS_CONFIG_PATH));
+        this.logger = plugin.getLogger();
+    }
+    
+    /**
+     * Starts loading the chunks around every team's spawn. Does nothing if they are already loaded
+     * or loading.
+     */
+    void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+        int diameter = radius * 2 + 1;
+        totalChunks = Quadrant.values().length * diameter * diameter;
+        loadedChunks = 0;
+        foundPools = 0;
+        startTime = System.nanoTime();
+        int startGeneration = generation;
+        for (Quadrant quadrant : Quadrant.values()) {
+            int centerX = getSpawnX(quadrant) >> 4;
+            int centerZ = getSpawnZ(quadrant) >> 4;
+            List<ChunkSnapshot> snapshots = new ArrayList<>(diameter * diameter);
+            for (int x = centerX - radius; x <= centerX + radius; x++) {
+                for (int z = centerZ - radius; z <= centerZ + radius; z++) {
+                    world.getChunkAtAsync(x, z).thenAccept(chunk -> {
+                        if (generation == startGeneration) {
+                            chunk.addPluginChunkTicket(plugin);
+                            ticketedChunks.add(chunk.getChunkKey());
+                            ChunkSnapshot snapshot = chunk.getChunkSnapshot(true, false, false);
+                            snapshots.add(snapshot);
+                            if (chunk.getX() == centerX && chunk.getZ() == centerZ) {
+                                spawnPoints.setColumns(quadrant,
+                                        SpawnPointPool.findColumns(world, snapshot));
+                            }
+                            if (snapshots.size() == diameter * diameter) {
+                                findSpawnPoints(quadrant, snapshots, startGeneration);
+                            }
+                            if (++loadedChunks == totalChunks) {
+                                logger.info("Loaded " + totalChunks + " spawn chunks in " +
+                                        (System.nanoTime() - startTime) / 1_000_000 + " ms");
+                            }
+                        }
+                    });
+                }
+            }
+        }
+    }
+    
+    /**
+     * Works out a team's spawn points off the server thread, then adds them to the pool. Points
+     * in chunks that were let go while they were being worked out are left out.
+     *
+     * @param quadrant        the team to find spawn points for
+     * @param snapshots       snapshots of the chunks around the team's spawn
+     * @param startGeneration the generation the chunks were loaded in
+     */
+    private void findSpawnPoints(Quadrant quadrant, List<ChunkSnapshot> snapshots,
+                                 int startGeneration) {
+        Bukkit.getAsyncScheduler().runNow(plugin, asyncTask -> {
+            Location[] points = SpawnPointPool.findPoints(world, quadrant, snapshots);
+            Bukkit.getGlobalRegionScheduler().run(plugin, scheduledTask -> {
+                if (generation == startGeneration) {
+                    Location[] loadedPoints = Arrays.stream(points)
+                            .filter(point -> ticketedChunks.contains(
+                                    SpawnPointPool.getChunkKey(point)))
+                            .toArray(Location[]::new);
+                    spawnPoints.set(quadrant, loadedPoints);
+                    foundPools++;
+                    logger.fine("Found " + loadedPoints.length + " spawn points for " + quadrant);
+                }
+            });
+        });
+    }
+    
+    /**
+     * Gets how far along the warm-up is.
+     *
+     * @return the fraction of chunks loaded, from 0 to 1
+     */
+    float getProgress() {
+        return totalChunks == 0 ? 0 : (float) loadedChunks / totalChunks;
+    }
+    
+    /**
+     * Checks if the warm-up has started but not finished.
+     *
+     * @return true if chunks are still loading
+     */
+    boolean isWarming() {
+        return started && loadedChunks < totalChunks;
+    }
+    
+    /**
+     * Gets the world teams spawn in.
+     *
+     * @return the world
+     */
+    @NotNull World getWorld() {
+        return world;
+    }
+    
+    /**
+     * Gets where a team spawns. Uses the next point from the spawn point pool if there is one,
+     * and otherwise a random column of the team's spawn chunk, loading the chunk without blocking
+     * if it hasn't been loaded yet.
+     *
+     * @param quadrant the team to get the spawn of
+     * @return the spawn location, completed on the server thread
+     */
+    @NotNull CompletableFuture<Location> getSpawnLocation(@NotNull Quadrant quadrant) {
+        Location spawnPoint = spawnPoints.next(quadrant);
+        if (spawnPoint == null) {
+            spawnPoint = spawnPoints.randomColumn(quadrant);
+        }
+        if (spawnPoint != null) {
+            return CompletableFuture.completedFuture(spawnPoint);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int x = (getSpawnX(quadrant) & ~15) + random.nextInt(16);
+        int z = (getSpawnZ(quadrant) & ~15) + random.nextInt(16);
+        return world.getChunkAtAsync(x >> 4, z >> 4)
+                .thenApply(chunk -> world.getHighestBlockAt(x, z).getLocation().add(0.5, 1, 0.5));
+    }
+    
+    /**
+     * Gets where a team member respawns, without touching any blocks. Uses the next point from
+     * the spawn point pool whose chunk is loaded, and otherwise a random column of the team's
+     * spawn chunk, from the heights saved when it was warmed. That chunk stays ticketed, so
+     * neither loads a chunk on the server thread.
+     *
+     * @param quadrant the team to get the respawn location of
+     * @return the respawn location, or null if the team's spawn chunk hasn't been warmed yet
+     */
+    @Nullable Location getRespawnLocation(@NotNull Quadrant quadrant) {
+        Location spawnPoint = spawnPoints.next(quadrant,
+                point -> world.isChunkLoaded(point.getBlockX() >> 4, point.getBlockZ() >> 4));
+        return spawnPoint != null ? spawnPoint : spawnPoints.randomColumn(quadrant);
+    }
+    
+    /**
+     * Lets the outer chunks unload once players have had time to settle in, keeping the chunk each
+     * team spawns in and the chunks with spawn points in them. If the chunks are still loading,
+     * or the spawn points haven't all been found, this waits until they have.
+     */
+    void settle() {
+        int settleGeneration = generation;
+        Bukkit.getGlobalRegionScheduler().runDelayed(plugin, scheduledTask -> {
+            if (generation != settleGeneration || !started) {
+                return;
+            }
+            if (isWarming() || foundPools < Quadrant.values().length) {
+                settle();
+                return;
+            }
+            Set<Long> spawnChunks = spawnPoints.getChunkKeys();
+            for (Quadrant quadrant : Quadrant.values()) {
+                spawnChunks.add(Chunk.getChunkKey(getSpawnX(quadrant) >> 4,
+                        getSpawnZ(quadrant) >> 4));
+            }
+            ticketedChunks.removeIf(chunkKey -> {
+                if (spawnChunks.contains(chunkKey)) {
+                    return false;
+                }
+                removeTicket(chunkKey);
+                return true;
+            });
+        }, SETTLE_TICKS);
+    }
+    
+    /**
+     * Lets all the chunks unload.
+     */
+    void release() {
+        generation++;
+        started = false;
+        totalChunks = 0;
+        loadedChunks = 0;
+        foundPools = 0;
+        for (long chunkKey : ticketedChunks) {
+            removeTicket(chunkKey);
+        }
+        ticketedChunks.clear();
+        spawnPoints.clear();
+    }
+    
+    /**
+     * Removes this plugin's ticket from a chunk.
+     *
+     * @param chunkKey the key of the chunk
+     */
+    private void removeTicket(long chunkKey) {
+        world.removePluginChunkTicket((int) chunkKey, (int) (chunkKey >> 32), plugin);
+    }
+    
+    /**
+     * Starts warming at the prep phase if the countdown didn't, and lets go of everything once the
+     * game is over.
+     *
+     * @param event the event that triggered this method
+     */
+    @EventHandler
+    public void onGameStateChange(GameStateChangeEvent event) {
+        switch (event.getState()) {
+            case PREP -> start();
+            case BATTLE -> {
+            }
+            case PREGAME, POST_GAME -> release();
+        }
+    }
+    
+    /**
+     * Gets the x coordinate of a team's spawn column.
+     *
+     * @param quadrant the team
+     * @return the x coordinate
+     */
+    private static int getSpawnX(@NotNull Quadrant quadrant) {
+        return quadrant.xSign * WorldBorderController.AXIS_BUFFER_OFFSET * 2;
+    }
+    
+    /**
+     * Gets the z coordinate of a team's spawn column.
+     *
+     * @param quadrant the team
+     * @return the z coordinate
+     */
+    private static int getSpawnZ(@NotNull Quadrant quadrant) {
+        return quadrant.zSign * WorldBorderController.AXIS_BUFFER_OFFSET * 2;
+    }
+}
@@ -1,29 +1,38 @@
 package io.github.minus1over12.quadwars;
 
+import com.destroystokyo.paper.event.player.PlayerPostRespawnEvent;
+import net.kyori.adventure.audience.Audience;
 import net.kyori.adventure.key.Key;
 import net.kyori.adventure.sound.Sound;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.format.NamedTextColor;
 import org.bukkit.Bukkit;
 import org.bukkit.GameMode;
-import org.bukkit.OfflinePlayer;
 import org.bukkit.World;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.entity.Entity;
-import org.bukkit.entity.HumanEntity;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.entity.PlayerDeathEvent;
+import org.bukkit.event.player.PlayerGameModeChangeEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.scoreboard.Scoreboard;
 import org.bukkit.scoreboard.Team;
+import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 /**
  * Controls the teams in the game.
@@ -49,9 +58,9 @@ public class TeamController implements Listener {
      */
     private final Logger logger;
     /**
-     * The default world set in the config.
+     * Loads the chunks around each team's spawn in the default world.
      */
-    private final World defaultWorld;
+    private final SpawnPrewarmer spawnPrewarmer;
     /**
      * The current game state.
      */
@@ -60,16 +69,33 @@ public class TeamController implements Listener {
      * If the plugin is running in hardcore mode.
      */
     private final boolean hardcore;
+    /**
+     * The index of which quadrant each entity is in.
+     */
+    private final QuadrantMembership membership;
+    /**
+     * The number of alive players on each team.
+     */
+    private final AliveTeamTracker aliveTeams = new AliveTeamTracker();
+    /**
+     * Spreads out teleports to team spawns.
+     */
+    private final TeleportScheduler teleportScheduler;
     
     /**
-     * Creates a team control object.
+     * Creates a team control object, and sets up the scoreboard teams from the config.
      *
-     * @param plugin the plugin creating the object
+     * @param plugin            the plugin creating the object
+     * @param membership        the index of which quadrant each entity is in
+     * @param teleportScheduler spreads out teleports to team spawns
      */
-    TeamController(QuadWars plugin) {
-        gameState = plugin.getGameState();
+    TeamController(QuadWars plugin, QuadrantMembership membership,
+                   TeleportScheduler teleportScheduler) {
+        this(plugin.getLogger(), plugin.getGameState(),
+                plugin.getConfig().getBoolean(QuadWars.HARDCORE_CONFIG_PATH), membership,
+                new SpawnPrewarmer(plugin, getDefaultWorld(plugin.getConfig())),
+                teleportScheduler);
         Scoreboard scoreboard = Bukkit.getScoreboardManager().getMainScoreboard();
-        logger = plugin.getLogger();
         if (scoreboard.getTeams().stream()
                 .anyMatch(team -> !team.getName().startsWith(TEAM_PREFIX))) {
             logger.warning("QuadWars is powered by Minecraft's built-in scoreboard system. " +
@@ -94,10 +120,50 @@ public class TeamController implements Listener {
             team.color(NamedTextColor.NAMES.value(
                     Objects.requireNonNull(config.getString(teamKey + "Color")).toLowerCase()));
         }
-        defaultWorld = Objects.requireNonNull(
+    }
+    
+    /**
+     * Creates a team control object from its parts, without touching the scoreboard teams.
+     *
+     * @param logger            the logger for the plugin
+     * @param gameState         the current game state
+     * @param hardcore          if the plugin is running in hardcore mode
+     * @param membership        the index of which quadrant each entity is in
+     * @param spawnPrewarmer    loads the chunks around each team's spawn
+     * @param teleportScheduler spreads out teleports to team spawns
+     */
+    TeamController(Logger logger, GameState gameState, boolean hardcore,
+                   QuadrantMembership membership, SpawnPrewarmer spawnPrewarmer,
+                   TeleportScheduler teleportScheduler) {
+        this.logger = logger;
+        this.gameState = gameState;
+        this.hardcore = hardcore;
+        this.membership = membership;
+        this.spawnPrewarmer = spawnPrewarmer;
+        this.teleportScheduler = teleportScheduler;
+        recountAliveTeams();
+        membership.addReconcileListener(this::recountAliveTeams);
+    }
+    
+    /**
+     * Gets the world teams spawn in from the config.
+     *
+     * @param config the plugin config
+     * @return the world
+     */
+    private static World getDefaultWorld(FileConfiguration config) {
+        return Objects.requireNonNull(
                 Bukkit.getWorld(Objects.requireNonNull(config.getString("defaultWorld"))),
                 "defaultWorld was not set to a valid world.");
-        hardcore = config.getBoolean(QuadWars.HARDCORE_CONFIG_PATH);
+    }
+    
+    /**
+     * Gets the prewarmer for the chunks around each team's spawn.
+     *
+     * @return the spawn prewarmer
+     */
+    SpawnPrewarmer getSpawnPrewarmer() {
+        return spawnPrewarmer;
     }
     
     /**
@@ -109,24 +175,21 @@ public class TeamController implements Listener {
     public void onGameStateChange(GameStateChangeEvent event) {
         gameState = event.getState();
         switch (gameState) {
-            case PREGAME, BATTLE, POST_GAME -> {
+            case PREGAME, POST_GAME -> {
             }
+            case BATTLE -> recountAliveTeams();
             case PREP -> {
+                List<CompletableFuture<?>> teleports = new ArrayList<>();
                 for (Player player : Bukkit.getOnlinePlayers()) {
-                    Team team =
-                            Bukkit.getScoreboardManager().getMainScoreboard().getPlayerTeam(player);
-                    if (team != null) {
-                        Quadrant quadrant = Quadrant.valueOf(
-                                QUADWARS_PREFIX.matcher(team.getName()).replaceFirst(""));
+                    Quadrant quadrant = membership.get(player);
+                    if (quadrant != null) {
                         player.sendMessage(Component.text(
                                 "Prep phase is starting, you are being teleported…"));
-                        player.teleportAsync(defaultWorld.getHighestBlockAt(
-                                                quadrant.xSign * WorldBorderController.AXIS_BUFFER_OFFSET * 2,
-                                                quadrant.zSign * WorldBorderController.AXIS_BUFFER_OFFSET * 2)
-                                        .getLocation().add(0, 1, 0))
-                                .thenRun(() -> player.setGameMode(GameMode.SURVIVAL));
+                        teleports.add(teleportToSpawn(player, quadrant));
                     }
                 }
+                CompletableFuture.allOf(teleports.toArray(CompletableFuture[]::new))
+                        .whenComplete((ignored, throwable) -> spawnPrewarmer.settle());
             }
         }
     }
@@ -138,7 +201,9 @@ public class TeamController implements Listener {
      */
     @EventHandler
     public void onPlayerDeath(PlayerDeathEvent event) {
-        checkWinCondition(event.getEntity());
+        Player player = event.getEntity();
+        aliveTeams.set(player.getUniqueId(), null);
+        checkWinCondition(membership.get(player));
     }
     
     /**
@@ -148,35 +213,139 @@ public class TeamController implements Listener {
      */
     @EventHandler
     public void onPlayerQuit(PlayerQuitEvent event) {
-        checkWinCondition(event.getPlayer());
+        Player player = event.getPlayer();
+        aliveTeams.set(player.getUniqueId(), null);
+        checkWinCondition(membership.get(player));
+    }
+    
+    /**
+     * Counts joining players as alive if they are.
+     *
+     * @param event the event that triggered this method
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        Player player = event.getPlayer();
+        aliveTeams.set(player.getUniqueId(), getAliveQuadrant(player, player.getGameMode()));
+    }
+    
+    /**
+     * Counts respawned players as alive if they are.
+     *
+     * @param event the event that triggered this method
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerPostRespawn(PlayerPostRespawnEvent event) {
+        Player player = event.getPlayer();
+        aliveTeams.set(player.getUniqueId(), getAliveQuadrant(player, player.getGameMode()));
+    }
+    
+    /**
+     * Updates whether a player is alive when their game mode changes.
+     *
+     * @param event the event that triggered this method
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerGameModeChange(PlayerGameModeChangeEvent event) {
+        Player player = event.getPlayer();
+        aliveTeams.set(player.getUniqueId(), getAliveQuadrant(player, event.getNewGameMode()));
+    }
+    
+    /**
+     * Gets the quadrant a player counts as alive in.
+     *
+     * @param player   the player to check
+     * @param gameMode the game mode the player has, or is about to have
+     * @return the quadrant of the player's team, or null if they are not alive and in the game
+     */
+    private @Nullable Quadrant getAliveQuadrant(Player player, GameMode gameMode) {
+        return player.isOnline() && !player.isDead() && gameMode == GameMode.SURVIVAL ?
+                membership.get(player) : null;
+    }
+    
+    /**
+     * Counts the alive players on each team from scratch.
+     *
+     * @return the number of alive players on each team
+     */
+    private Map<Quadrant, Integer> countAliveTeams() {
+        Map<Quadrant, Integer> counts = new EnumMap<>(Quadrant.class);
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            Quadrant quadrant = getAliveQuadrant(player, player.getGameMode());
+            if (quadrant != null) {
+                counts.merge(quadrant, 1, Integer::sum);
+            }
+        }
+        return counts;
+    }
+    
+    /**
+     * Throws away the running alive counts and counts every player again.
+     */
+    private void recountAliveTeams() {
+        Map<UUID, Quadrant> alivePlayers = new HashMap<>();
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            Quadrant quadrant = getAliveQuadrant(player, player.getGameMode());
+            if (quadrant != null) {
+                alivePlayers.put(player.getUniqueId(), quadrant);
+            }
+        }
+        aliveTeams.reset(alivePlayers);
+    }
+    
+    /**
+     * Checks the running alive counts against a fresh count, tells the sender about any
+     * differences, and then fixes them.
+     *
+     * @param sender the sender to report to
+     */
+    void auditAliveTeams(Audience sender) {
+        Map<Quadrant, Integer> actualCounts = countAliveTeams();
+        boolean consistent = true;
+        for (Quadrant quadrant : Quadrant.values()) {
+            int tracked = aliveTeams.getAliveCount(quadrant);
+            int actual = actualCounts.getOrDefault(quadrant, 0);
+            Component message = Component.text(quadrant + ": " + actual + " alive");
+            if (tracked != actual) {
+                consistent = false;
+                message = message.append(Component.text(" (tracked " + tracked + ")")
+                        .color(NamedTextColor.RED));
+            }
+            sender.sendMessage(message);
+        }
+        if (consistent) {
+            sender.sendMessage(Component.text("Alive team counts are consistent."));
+        } else {
+            recountAliveTeams();
+            sender.sendMessage(Component.text("Alive team counts were out of sync and have been " +
+                    "recounted.").color(NamedTextColor.RED));
+            logger.warning("Alive team counts were out of sync and have been recounted.");
+        }
     }
     
     /**
      * Checks if the game is over.
      *
-     * @param outPlayer the player that was eliminated
+     * @param outQuadrant the quadrant of the player that was eliminated, if they were on a team
      */
-    private void checkWinCondition(OfflinePlayer outPlayer) {
+    private void checkWinCondition(@Nullable Quadrant outQuadrant) {
         if (hardcore && gameState == GameState.BATTLE) {
             Scoreboard scoreboard = Bukkit.getScoreboardManager().getMainScoreboard();
-            Set<Team> aliveTeams = Bukkit.getOnlinePlayers().stream()
-                    .filter(player -> !player.isDead() &&
-                            player.getGameMode().equals(GameMode.SURVIVAL))
-                    .map(scoreboard::getPlayerTeam).filter(Objects::nonNull)
-                    .collect(Collectors.toUnmodifiableSet());
-            Team playerTeam = scoreboard.getPlayerTeam(outPlayer);
-            if (aliveTeams.size() == 1) {
-                Bukkit.broadcast(
-                        Component.text("Team ").append(aliveTeams.iterator().next().displayName())
-                                .append(Component.text(" has won!")));
+            Quadrant winner = aliveTeams.getAnyAliveQuadrant();
+            if (aliveTeams.getAliveQuadrantCount() == 1 && winner != null) {
+                Bukkit.broadcast(Component.text("Team ").append(Objects.requireNonNull(
+                                scoreboard.getTeam(TEAM_PREFIX + winner), "Could not load a team")
+                        .displayName()).append(Component.text(" has won!")));
                 Bukkit.getServer().playSound(
                         Sound.sound(Key.key("entity.ender_dragon.death"), Sound.Source.MASTER, 1,
                                 MINIMUM_PITCH), Sound.Emitter.self());
                 
                 Bukkit.getPluginManager().callEvent(new GameStateChangeEvent(GameState.POST_GAME));
-            } else if (playerTeam != null && !aliveTeams.contains(playerTeam)) {
-                Bukkit.broadcast(
-                        playerTeam.displayName().append(Component.text(" has been eliminated!")));
+            } else if (outQuadrant != null && aliveTeams.getAliveCount(outQuadrant) == 0) {
+                Bukkit.broadcast(Objects.requireNonNull(
+                                scoreboard.getTeam(TEAM_PREFIX + outQuadrant),
+                                "Could not load a team").displayName()
+                        .append(Component.text(" has been eliminated!")));
                 Bukkit.getServer().playSound(
                         Sound.sound(Key.key("entity.wither.death"), Sound.Source.MASTER, 1,
                                 Math.nextUp(MINIMUM_PITCH)),
@@ -185,6 +354,18 @@ public class TeamController implements Listener {
         }
     }
     
+    /**
+     * Queues an entity to be sent to its team's spawn and put in survival.
+     *
+     * @param entity   the entity to send
+     * @param quadrant the team of the entity
+     * @return a future completed with whether the teleport happened
+     */
+    private CompletableFuture<Boolean> teleportToSpawn(Entity entity, Quadrant quadrant) {
+        return teleportScheduler.schedule(entity, spawnPrewarmer.getWorld(),
+                () -> spawnPrewarmer.getSpawnLocation(quadrant), GameMode.SURVIVAL);
+    }
+    
     /**
      * Adds an entity to a team.
      *
@@ -197,17 +378,14 @@ public class TeamController implements Listener {
                 "Could not load a team");
         if (Bukkit.getMaxPlayers() / 4 > team.getSize()) {
             team.addEntity(entity);
+            membership.set(entity, quadrant);
+            if (entity instanceof Player player) {
+                aliveTeams.set(player.getUniqueId(),
+                        getAliveQuadrant(player, player.getGameMode()));
+            }
             logger.info("Adding " + entity.getName() + " to team " + quadrant);
             if (gameState != GameState.PREGAME) {
-                entity.teleportAsync(defaultWorld.getHighestBlockAt(
-                                quadrant.xSign * WorldBorderController.AXIS_BUFFER_OFFSET * 2,
-                                quadrant.zSign * WorldBorderController.AXIS_BUFFER_OFFSET * 2).getLocation()
-                        .add(0, 1, 0)).thenRun(() -> {
-                    if (entity instanceof HumanEntity humanEntity) {
-                        humanEntity.setGameMode(GameMode.SURVIVAL);
-                    }
-                });
-                
+                teleportToSpawn(entity, quadrant);
             }
             entity.sendMessage(
                     Component.translatable("commands.team.join.success.single", entity.name(),
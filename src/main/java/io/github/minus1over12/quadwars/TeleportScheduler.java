@@ -0,0 +1,306 @@
+package io.github.minus1over12.quadwars;
+
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.Bukkit;
+import org.bukkit.GameMode;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.HumanEntity;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * Spreads out large groups of teleports, such as everyone being sent to their spawn at the start
+ * of the prep phase, so they don't all load chunks in the same tick. Each world only starts a set
+ * number of teleports per tick, and teams take turns so no team gets a head start.
+ *
+ * @author War Pigeon
+ */
+final class TeleportScheduler {
+    /**
+     * The config path for how many teleports to start per tick.
+     */
+    static final String BUDGET_CONFIG_PATH = "teleportsPerTick";
+    /**
+     * The key in the budget section used for worlds that aren't listed.
+     */
+    private static final String DEFAULT_BUDGET_KEY = "default";
+    /**
+     * The budget used if the config doesn't have one.
+     */
+    private static final int FALLBACK_BUDGET = 4;
+    /**
+     * The plugin used for scheduling the task.
+     */
+    private final Plugin plugin;
+    /**
+     * The logger for the plugin.
+     */
+    private final Logger logger;
+    /**
+     * The index of which quadrant each entity is in, used to pick its lane.
+     */
+    private final QuadrantMembership membership;
+    /**
+     * Runs {@link #tick()}, timed if handler metrics are on.
+     */
+    private final Runnable timedTick;
+    /**
+     * The teleports per tick for each world listed in the config, by world name.
+     */
+    private final Map<String, Integer> worldBudgets = new HashMap<>();
+    /**
+     * The teleports per tick for worlds that aren't listed.
+     */
+    private final int defaultBudget;
+    /**
+     * The waiting teleports for each team by quadrant ordinal, with entities not on a team in the
+     * last lane.
+     */
+    private final Queue<Request>[] lanes;
+    /**
+     * The newest request for each queued entity, so a newer teleport replaces an older one.
+     */
+    private final Map<UUID, Request> queued = new HashMap<>();
+    /**
+     * The lane to look at first on the next tick.
+     */
+    private int nextLane;
+    /**
+     * Teleports that have started but not finished.
+     */
+    private int inFlight;
+    /**
+     * When the current batch of teleports started, in nanoseconds.
+     */
+    private long batchStartTime;
+    /**
+     * How many teleports have finished in the current batch.
+     */
+    private int batchCompleted;
+    /**
+     * The most teleports that were waiting at once in the current batch.
+     */
+    private int batchPeakDepth;
+    /**
+     * The running task, or null if nothing is waiting.
+     */
+    private ScheduledTask task;
+    
+    /**
+     * Creates a teleport scheduler.
+     *
+     * @param plugin     the plugin used for scheduling the task
+     * @param membership     the index of which quadrant each entity is in
+     * @param handlerMetrics times the task if handler metrics are on
+     */
+    @SuppressWarnings("unchecked")
+    TeleportScheduler(@NotNull Plugin plugin, @NotNull QuadrantMembership membership,
+                      @NotNull HandlerMetrics handlerMetrics) {
+        this.plugin = plugin;
+        this.logger = plugin.getLogger();
+        this.membership = membership;
+        timedTick = handlerMetrics.time("TeleportScheduler.tick", this::tick);
+        ConfigurationSection section = plugin.getConfig().getConfigurationSection(
+                BUDGET_CONFIG_PATH);
+        if (section == null) {
+            defaultBudget = FALLBACK_BUDGET;
+        } else {
+            defaultBudget = readBudget(section, DEFAULT_BUDGET_KEY, FALLBACK_BUDGET);
+            for (String worldName : section.getKeys(false)) {
+                if (!worldName.equals(DEFAULT_BUDGET_KEY)) {
+                    worldBudgets.put(worldName, readBudget(section, worldName, defaultBudget));
+                }
+            }
+        }
+        lanes = new Queue[Quadrant.values().length + 1];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new ArrayDeque<>();
+        }
+    }
+    
+    /**
+     * Reads a budget from the config. Budgets below 1 would stop teleports to the world from ever
+     * starting, so they are raised to 1.
+     *
+     * @param section  the budget section of the config
+     * @param key      the key of the budget to read
+     * @param fallback the budget to use if the key isn't set
+     * @return the teleports per tick, at least 1
+     */
+    private int readBudget(@NotNull ConfigurationSection section, @NotNull String key,
+                           int fallback) {
+        int budget = section.getInt(key, fallback);
+        if (budget < 1) {
+            logger.warning(BUDGET_CONFIG_PATH + "." + key + " is " + section.get(key) +
+                    " but must be at least 1, so 1 will be used");
+            return 1;
+        }
+        return budget;
+    }
+    
+    /**
+     * Queues an entity to be teleported.
+     *
+     * @param entity      the entity to teleport
+     * @param world       the world the entity is being sent to, used for its budget
+     * @param destination gets where to send the entity once it's the entity's turn
+     * @param gameMode    the game mode to put the entity in once it arrives, if it is a player
+     * @return a future completed with whether the teleport happened
+     */
+    @NotNull CompletableFuture<Boolean> schedule(
+            @NotNull Entity entity, @NotNull World world,
+            @NotNull Supplier<CompletableFuture<Location>> destination,
+            @Nullable GameMode gameMode) {
+        Request request = new Request(entity, world, destination, gameMode,
+                new CompletableFuture<>());
+        Request replaced = queued.put(entity.getUniqueId(), request);
+        if (replaced != null) {
+            replaced.result().complete(false);
+        }
+        Quadrant quadrant = membership.get(entity);
+        lanes[quadrant == null ? lanes.length - 1 : quadrant.ordinal()].add(request);
+        int depth = queued.size();
+        if (task == null) {
+            if (inFlight == 0) {
+                batchStartTime = System.nanoTime();
+                batchCompleted = 0;
+                batchPeakDepth = 0;
+            }
+            task = Bukkit.getGlobalRegionScheduler()
+                    .runAtFixedRate(plugin, scheduledTask -> timedTick.run(), 1, 1);
+        }
+        batchPeakDepth = Math.max(batchPeakDepth, depth);
+        return request.result();
+    }
+    
+    /**
+     * Gets how many teleports are waiting to start.
+     *
+     * @return the number of waiting teleports
+     */
+    int getQueueDepth() {
+        return queued.size();
+    }
+    
+    /**
+     * Starts as many teleports as the budgets allow, taking one from each lane in turn. Each lane
+     * starts its oldest teleport to a world that still has budget left, so a busy world doesn't
+     * hold up teleports to other worlds queued behind it.
+     */
+    private void tick() {
+        Map<World, Integer> remaining = new HashMap<>();
+        boolean started = true;
+        while (started) {
+            started = false;
+            for (int i = 0; i < lanes.length; i++) {
+                Iterator<Request> lane = lanes[(nextLane + i) % lanes.length].iterator();
+                while (lane.hasNext()) {
+                    Request request = lane.next();
+                    if (queued.get(request.entity().getUniqueId()) != request) {
+                        // Replaced by a newer teleport.
+                        lane.remove();
+                        continue;
+                    }
+                    int budget = remaining.computeIfAbsent(request.world(), this::getBudget);
+                    if (budget > 0) {
+                        remaining.put(request.world(), budget - 1);
+                        lane.remove();
+                        queued.remove(request.entity().getUniqueId());
+                        start(request);
+                        started = true;
+                        break;
+                    }
+                }
+            }
+            nextLane = (nextLane + 1) % lanes.length;
+        }
+        if (queued.isEmpty()) {
+            task.cancel();
+            task = null;
+            for (Queue<Request> lane : lanes) {
+                lane.clear();
+            }
+            reportIfDone();
+        }
+    }
+    
+    /**
+     * Gets how many teleports can start each tick in a world.
+     *
+     * @param world the world
+     * @return the number of teleports per tick, always at least 1
+     */
+    private int getBudget(World world) {
+        return worldBudgets.getOrDefault(world.getName(), defaultBudget);
+    }
+    
+    /**
+     * Starts a teleport.
+     *
+     * @param request the teleport to start
+     */
+    private void start(Request request) {
+        Entity entity = request.entity();
+        if (!entity.isValid()) {
+            request.result().complete(false);
+            return;
+        }
+        inFlight++;
+        request.destination().get().thenCompose(entity::teleportAsync)
+                .whenComplete((success, throwable) -> {
+                    boolean teleported = throwable == null && success;
+                    if (teleported && request.gameMode() != null &&
+                            entity instanceof HumanEntity humanEntity) {
+                        humanEntity.setGameMode(request.gameMode());
+                    }
+                    if (throwable != null) {
+                        logger.warning("Could not teleport " + entity.getName() + ": " +
+                                throwable);
+                    }
+                    request.result().complete(teleported);
+                    inFlight--;
+                    batchCompleted++;
+                    reportIfDone();
+                });
+    }
+    
+    /**
+     * Logs how the batch went once every teleport in it has finished.
+     */
+    private void reportIfDone() {
+        if (inFlight == 0 && task == null && batchCompleted > 0) {
+            logger.info("Finished " + batchCompleted + " teleports in " +
+                    (System.nanoTime() - batchStartTime) / 1_000_000 + " ms, with up to " +
+                    batchPeakDepth + " waiting");
+            batchCompleted = 0;
+        }
+    }
+    
+    /**
+     * A teleport waiting for its turn.
+     *
+     * @param entity      the entity to teleport
+     * @param world       the world the entity is being sent to
+     * @param destination gets where to send the entity
+     * @param gameMode    the game mode to put the entity in once it arrives
+     * @param result      completed with whether the teleport happened
+     */
+    private record Request(Entity entity, World world,
+                           Supplier<CompletableFuture<Location>> destination,
+                           @Nullable GameMode gameMode, CompletableFuture<Boolean> result) {
+    }
+}
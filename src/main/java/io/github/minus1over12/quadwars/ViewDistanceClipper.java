@@ -0,0 +1,92 @@
+package io.github.minus1over12.quadwars;
+
+import org.bukkit.entity.Player;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shrinks a player's view distance as they get close to the edge of their quadrant, so the server
+ * doesn't generate and send the buffer and the quadrant past it. The distance only grows again
+ * once it would grow by more than a chunk, so walking back and forth over a chunk line doesn't
+ * resend chunks every step. The server won't go below a view distance of two chunks, which can
+ * reach 47 blocks past a player, but the Nether's buffer is only 32 blocks wide. Players within a
+ * chunk of a Nether edge can still see about a chunk into the next quadrant, though the world
+ * border keeps them out of it.
+ *
+ * @author War Pigeon
+ */
+final class ViewDistanceClipper {
+    /**
+     * The smallest view distance a player is clipped to, in chunks.
+     */
+    private static final int MIN_VIEW_DISTANCE = 2;
+    /**
+     * How many chunks the wanted view distance has to be over the clipped one before it grows.
+     */
+    private static final int HYSTERESIS = 1;
+    /**
+     * The view distance that tells the server to use the world's.
+     */
+    private static final int WORLD_VIEW_DISTANCE = -1;
+    /**
+     * The number of blocks along each side of a chunk.
+     */
+    private static final int CHUNK_SIZE = 16;
+    /**
+     * The view distance each clipped player has been given, in chunks.
+     */
+    private final Map<UUID, Integer> clipped = new ConcurrentHashMap<>();
+    
+    /**
+     * Works out a player's view distance from how far they are from the edge of their quadrant,
+     * changing it if needed. Players can see about half way across the buffer, up to a chunk
+     * further depending on where they are in their chunk, unless that is under the smallest view
+     * distance.
+     *
+     * @param player the player
+     * @param border the border of the player's quadrant
+     * @param x      the x coordinate of the player
+     * @param z      the z coordinate of the player
+     */
+    void update(Player player, QuadrantBorder border, double x, double z) {
+        double reach = border.signedDistance(x, z) +
+                WorldBorderController.AXIS_BUFFER_OFFSET / border.getCoordinateScale() / 2;
+        int wanted = Math.max(MIN_VIEW_DISTANCE, (int) Math.floor(reach / CHUNK_SIZE));
+        UUID uniqueId = player.getUniqueId();
+        Integer current = clipped.get(uniqueId);
+        int worldViewDistance = player.getWorld().getViewDistance();
+        int applied = current == null ? worldViewDistance : current;
+        if (wanted < applied || wanted > applied + HYSTERESIS) {
+            if (wanted >= worldViewDistance) {
+                restore(player);
+            } else {
+                player.setViewDistance(wanted);
+                player.setSendViewDistance(wanted);
+                clipped.put(uniqueId, wanted);
+            }
+        }
+    }
+    
+    /**
+     * Gives a player back the world's view distance, if they were clipped.
+     *
+     * @param player the player
+     */
+    void restore(Player player) {
+        if (clipped.remove(player.getUniqueId()) != null) {
+            player.setViewDistance(WORLD_VIEW_DISTANCE);
+            player.setSendViewDistance(WORLD_VIEW_DISTANCE);
+        }
+    }
+    
+    /**
+     * Forgets a player that left. Their view distance goes back to normal when they join again.
+     *
+     * @param uniqueId the UUID of the player
+     */
+    void forget(UUID uniqueId) {
+        clipped.remove(uniqueId);
+    }
+}
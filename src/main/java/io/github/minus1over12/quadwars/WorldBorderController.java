@@ -1,7 +1,6 @@
 package io.github.minus1over12.quadwars;
 
 import com.destroystokyo.paper.event.player.PlayerPostRespawnEvent;
-import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
 import net.kyori.adventure.audience.Audience;
 import net.kyori.adventure.text.Component;
 import org.bukkit.Bukkit;
@@ -10,34 +9,52 @@ import org.bukkit.NamespacedKey;
 import org.bukkit.World;
 import org.bukkit.WorldBorder;
 import org.bukkit.block.Block;
+import org.bukkit.block.data.Directional;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.Player;
+import org.bukkit.entity.Projectile;
 import org.bukkit.event.Cancellable;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockDispenseEvent;
+import org.bukkit.event.block.BlockExplodeEvent;
+import org.bukkit.event.block.BlockFormEvent;
+import org.bukkit.event.block.BlockFromToEvent;
+import org.bukkit.event.block.BlockIgniteEvent;
 import org.bukkit.event.block.BlockPistonEvent;
 import org.bukkit.event.block.BlockPistonExtendEvent;
 import org.bukkit.event.block.BlockPistonRetractEvent;
+import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.event.block.BlockSpreadEvent;
 import org.bukkit.event.entity.EntityChangeBlockEvent;
 import org.bukkit.event.entity.EntityEvent;
 import org.bukkit.event.entity.EntityExplodeEvent;
 import org.bukkit.event.entity.ProjectileHitEvent;
+import org.bukkit.event.entity.ProjectileLaunchEvent;
+import org.bukkit.event.inventory.InventoryMoveItemEvent;
 import org.bukkit.event.player.PlayerChangedWorldEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerMoveEvent;
 import org.bukkit.event.player.PlayerPortalEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.event.player.PlayerRespawnEvent;
+import org.bukkit.event.world.StructureGrowEvent;
+import org.bukkit.event.world.WorldLoadEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
 import org.bukkit.plugin.Plugin;
-import org.bukkit.scoreboard.Team;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
@@ -97,9 +114,26 @@ public class WorldBorderController implements Listener {
      */
     static final String ADD_COMMAND = "add";
     /**
-     * The amount of damage the world border should do.
+     * How much to take off a player's distance from the border when working out how far they can
+     * move before being checked again. Minecraft checks the block a player is in, so the edge can
+     * be up to a block closer than the exact distance says.
      */
-    private static final double WORLD_BORDER_DAMAGE = 0.5;
+    private static final double SAFE_DISTANCE_MARGIN = 1;
+    /**
+     * The furthest a vanilla explosion can break blocks from its center, in blocks. The strongest
+     * one, a wither being made, reaches about 12 blocks.
+     */
+    private static final double MAX_EXPLOSION_REACH = 16;
+    /**
+     * How far, in blocks, an item transfer can reach from the block that started it. Hoppers and
+     * droppers reach the next block, and a double chest's location is the middle of its halves.
+     */
+    private static final int TRANSFER_REACH = 2;
+    /**
+     * How close to an edge, in blocks, a projectile has to be launched to be followed. Nothing a
+     * player can launch flies much further than this over flat ground.
+     */
+    private static final double PROJECTILE_TRACK_RANGE = 128;
     /**
      * The size of the world border to use.
      */
@@ -120,24 +154,77 @@ public class WorldBorderController implements Listener {
      * Set of players known to be out of bounds.
      */
     private final Set<Player> oobPlayers = ConcurrentHashMap.newKeySet();
+    /**
+     * The tickers damaging out of bounds players, keyed by world UID.
+     */
+    private final Map<UUID, BorderDamageTicker> damageTickers = new ConcurrentHashMap<>();
+    /**
+     * Reused by the damage tickers so checking a player's location doesn't allocate. Only used on
+     * the main thread.
+     */
+    private final Location damageLocation = new Location(null, 0, 0, 0);
+    /**
+     * How far each player can move before they need to be checked against the border again.
+     */
+    private final Map<UUID, MoveBudget> moveBudgets = new ConcurrentHashMap<>();
+    /**
+     * Players who respawned before their team's spawn chunk was warmed, and still need to be
+     * sent there.
+     */
+    private final Set<UUID> unplacedRespawns = ConcurrentHashMap.newKeySet();
     /**
      * The current game state.
      */
     private GameState gameState;
+    /**
+     * The quadrant borders for every loaded world. Replaced whenever the world list changes.
+     */
+    private volatile BorderGeometry borderGeometry;
+    /**
+     * The index of which quadrant each entity is in.
+     */
+    private final QuadrantMembership membership;
+    /**
+     * Hands out spawn points that have already been checked to be safe.
+     */
+    private final SpawnPrewarmer spawnPrewarmer;
+    /**
+     * The Lunar Client integration, or null if Apollo isn't installed.
+     */
+    private final @Nullable LunarClientIntegration lunarClientIntegration;
+    /**
+     * Times the damage tickers if handler metrics are on.
+     */
+    private final HandlerMetrics handlerMetrics;
+    /**
+     * The rules that only apply in the prep phase.
+     */
+    private final PrepRules prepRules = new PrepRules();
+    /**
+     * Follows projectiles launched near an edge during the prep phase.
+     */
+    private final ProjectileTracker projectileTracker;
+    /**
+     * Shrinks the view distance of players near an edge during the prep phase.
+     */
+    private final ViewDistanceClipper viewDistanceClipper = new ViewDistanceClipper();
     
     /**
-     * Creates a world border control object.
+     * Creates a world border control object, and sets the vanilla world border of every world to
+     * fit all four quadrants.
      *
      * @param plugin the plugin to get the game state from and use for scheduling events.
      * @param ignoredWorldKeys the keys of worlds to ignore.
+     * @param membership the index of which quadrant each entity is in.
+     * @param spawnPrewarmer hands out spawn points that have already been checked to be safe.
+     * @param lunarClientIntegration the Lunar Client integration, or null if Apollo isn't
+     *                               installed.
      */
-    WorldBorderController(QuadWars plugin, Collection<NamespacedKey> ignoredWorldKeys) {
-        this.plugin = plugin;
-        this.ignoredWorldKeys = ignoredWorldKeys;
-        gameState = plugin.getGameState();
-        FileConfiguration config = plugin.getConfig();
-        allowEndInPrepPhase = config.getBoolean("allowEndInPrepPhase");
-        worldBorderSize = config.getDouble("worldBorderSize");
+    WorldBorderController(QuadWars plugin, Collection<NamespacedKey> ignoredWorldKeys,
+                          QuadrantMembership membership, SpawnPrewarmer spawnPrewarmer,
+                          @Nullable LunarClientIntegration lunarClientIntegration) {
+        this(plugin, plugin.getGameState(), plugin.getHandlerMetrics(), ignoredWorldKeys,
+                membership, spawnPrewarmer, lunarClientIntegration, Bukkit.getWorlds());
         for (WorldBorder worldBorder : getWorldBorderList()) {
             worldBorder.setCenter(0, 0);
             double coordinateScale =
@@ -147,18 +234,62 @@ public class WorldBorderController implements Listener {
         }
     }
     
+    /**
+     * Creates a world border control object from its parts, without touching the vanilla world
+     * borders.
+     *
+     * @param plugin the plugin to read the config from and use for scheduling events.
+     * @param gameState the current game state.
+     * @param handlerMetrics times the repeating tasks if handler metrics are on.
+     * @param ignoredWorldKeys the keys of worlds to ignore.
+     * @param membership the index of which quadrant each entity is in.
+     * @param spawnPrewarmer hands out spawn points that have already been checked to be safe.
+     * @param lunarClientIntegration the Lunar Client integration, or null if Apollo isn't
+     *                               installed.
+     * @param worlds the worlds to work out the quadrant borders of.
+     */
+    WorldBorderController(Plugin plugin, GameState gameState, HandlerMetrics handlerMetrics,
+                          Collection<NamespacedKey> ignoredWorldKeys,
+                          QuadrantMembership membership, SpawnPrewarmer spawnPrewarmer,
+                          @Nullable LunarClientIntegration lunarClientIntegration,
+                          List<World> worlds) {
+        this.plugin = plugin;
+        this.gameState = gameState;
+        this.handlerMetrics = handlerMetrics;
+        this.ignoredWorldKeys = ignoredWorldKeys;
+        this.membership = membership;
+        this.spawnPrewarmer = spawnPrewarmer;
+        this.lunarClientIntegration = lunarClientIntegration;
+        projectileTracker = new ProjectileTracker(plugin, handlerMetrics);
+        FileConfiguration config = plugin.getConfig();
+        allowEndInPrepPhase = config.getBoolean("allowEndInPrepPhase");
+        worldBorderSize = config.getDouble("worldBorderSize");
+        borderGeometry = BorderGeometry.build(worlds, worldBorderSize);
+    }
+    
     /**
      * Gets the quadrant of a location.
      *
      * @param location the location to get the quadrant of
      * @return the quadrant of the location
      */
-    private static Quadrant getQuadrantFromLocation(Location location) {
+    static Quadrant getQuadrantFromLocation(Location location) {
+        return getQuadrantAt(location.getX(), location.getZ());
+    }
+    
+    /**
+     * Gets the quadrant a coordinate is on the side of the axes of.
+     *
+     * @param x the x coordinate
+     * @param z the z coordinate
+     * @return the quadrant of the coordinate
+     */
+    static Quadrant getQuadrantAt(double x, double z) {
         Quadrant result;
-        if (location.getZ() > 0) {
-            result = location.getX() < 0 ? Quadrant.SW : Quadrant.SE;
+        if (z > 0) {
+            result = x < 0 ? Quadrant.SW : Quadrant.SE;
         } else {
-            result = location.getX() < 0 ? Quadrant.NW : Quadrant.NE;
+            result = x < 0 ? Quadrant.NW : Quadrant.NE;
         }
         return result;
     }
@@ -179,199 +310,150 @@ public class WorldBorderController implements Listener {
     @EventHandler(priority = EventPriority.LOWEST)
     public void setGameStateEarly(GameStateChangeEvent event) {
         gameState = event.getState();
+        if (gameState == GameState.PREP) {
+            borderGeometry = BorderGeometry.build(Bukkit.getWorlds(), worldBorderSize);
+        } else {
+            projectileTracker.cancel();
+        }
     }
     
     /**
-     * Sets the world borders when the game state changes.
+     * Adds quadrant borders for newly loaded worlds.
      *
      * @param event the event that triggered this method
      */
     @EventHandler
-    public void onGameStateChange(GameStateChangeEvent event) {
-        for (Player player : Bukkit.getOnlinePlayers()) {
-            setPlayerWorldBorder(player);
-        }
+    public void onWorldLoad(WorldLoadEvent event) {
+        borderGeometry = BorderGeometry.build(Bukkit.getWorlds(), worldBorderSize);
     }
     
     /**
-     * Sets the world border for players when they respawn.
+     * Drops the quadrant borders of unloading worlds.
      *
      * @param event the event that triggered this method
      */
-    @EventHandler
-    public static void onPlayerRespawn(PlayerRespawnEvent event) {
-        if (!(event.isAnchorSpawn() || event.isBedSpawn())) {
-            Team team = Bukkit.getScoreboardManager().getMainScoreboard()
-                    .getPlayerTeam(event.getPlayer());
-            if (team != null) {
-                Quadrant quadrant = getQuadrant(team);
-                event.setRespawnLocation(event.getRespawnLocation().getWorld()
-                        .getHighestBlockAt(quadrant.xSign * AXIS_BUFFER_OFFSET * 2,
-                                quadrant.zSign * AXIS_BUFFER_OFFSET * 2).getLocation()
-                        .add(0, 1, 0));
-            }
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onWorldUnload(WorldUnloadEvent event) {
+        World unloadingWorld = event.getWorld();
+        BorderDamageTicker damageTicker = damageTickers.remove(unloadingWorld.getUID());
+        if (damageTicker != null) {
+            damageTicker.cancel();
         }
+        borderGeometry = BorderGeometry.build(
+                Bukkit.getWorlds().stream().filter(world -> !world.equals(unloadingWorld))
+                        .toList(), worldBorderSize);
     }
     
     /**
-     * Sets a new world border for players when they switch worlds.
+     * Sets the world borders when the game state changes.
      *
      * @param event the event that triggered this method
      */
     @EventHandler
-    public void onPlayerChangedWorld(PlayerChangedWorldEvent event) {
-        setPlayerWorldBorder(event.getPlayer());
+    public void onGameStateChange(GameStateChangeEvent event) {
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            setPlayerWorldBorder(player);
+        }
     }
     
     /**
-     * Schedules damage for players moving outside the world border in the prep phase, because the
-     * virtual one they get won't do it for us.
+     * Respawns players at their team's spawn. If it hasn't been warmed yet, they respawn where
+     * they would have and are sent there once they have respawned.
      *
      * @param event the event that triggered this method
      */
     @EventHandler
-    public void onPlayerMove(PlayerMoveEvent event) {
-        if (gameState == GameState.PREP) {
+    public void onPlayerRespawn(PlayerRespawnEvent event) {
+        if (!(event.isAnchorSpawn() || event.isBedSpawn())) {
             Player player = event.getPlayer();
-            WorldBorder worldBorder = player.getWorldBorder();
-            if (worldBorder != null) {
-                if (!worldBorder.isInside(getShiftedLocation(player)) &&
-                        !oobPlayers.contains(player)) {
-                    player.getScheduler().runAtFixedRate(plugin,
-                            scheduledTask -> worldBorderDamageTask(scheduledTask, player),
-                            () -> oobPlayers.remove(player), 1, 1);
+            Quadrant quadrant = membership.get(player);
+            if (quadrant != null) {
+                Location respawnLocation = spawnPrewarmer.getRespawnLocation(quadrant);
+                if (respawnLocation != null) {
+                    event.setRespawnLocation(respawnLocation);
+                } else {
+                    unplacedRespawns.add(player.getUniqueId());
                 }
             }
         }
     }
     
     /**
-     * Shifts a player's location if they are in a world with coordinate scaling. For use with
-     * WorldBorder.isInside(Location).
+     * Sets a new world border for players when they switch worlds.
      *
-     * @param player the player to shift the location of
-     * @return the shifted location
-     */
-    private static Location getShiftedLocation(Player player) {
-        double coordinateScale = player.getWorld().getCoordinateScale();
-        // Gets a clone of the player's location. Not cloning this will cause the real player to
-        // move when we call Location.add().
-        Location playerLocation = player.getLocation().clone();
-        WorldBorder worldBorder = player.getWorldBorder();
-        // Make sure the player actually has their own world border.
-        Objects.requireNonNull(worldBorder);
-        // If the player is in a world with no coordinate scaling, we will just leave everything be.
-        if (coordinateScale != 1.0) {
-            // QuadWars' players are each in one Quadrant of the world. We will need to multiply
-            // our offsets by -1 in some cases to get the right quadrant.
-            Quadrant quadrant = getQuadrant(Objects.requireNonNull(
-                    Bukkit.getScoreboardManager().getMainScoreboard().getPlayerTeam(player)));
-            double size = worldBorder.getSize();
-            // This is the "reverse engineered" algorithm for how Minecraft shifts the position of
-            // coordinates for world borders. You take the center, then subtract half the size of
-            // the border. You then subtract the distance from the origin to the border.
-            double xShift = worldBorder.getCenter().getX() - quadrant.xSign * size / 2 -
-                    (AXIS_BUFFER_OFFSET / coordinateScale * quadrant.xSign);
-            double zShift = worldBorder.getCenter().getZ() - quadrant.zSign * size / 2 -
-                    (AXIS_BUFFER_OFFSET / coordinateScale * quadrant.zSign);
-            // We then add our shifts to the player's location.
-            playerLocation = playerLocation.add(xShift, 0, zShift);
-        }
-        return playerLocation;
-        // And proceed to be sad about how long this took to figure out… ☹
+     * @param event the event that triggered this method
+     */
+    @EventHandler
+    public void onPlayerChangedWorld(PlayerChangedWorldEvent event) {
+        setPlayerWorldBorder(event.getPlayer());
     }
     
     /**
-     * Shifts a player's location if they are in a world with coordinate scaling. For use with
-     * WorldBorder.isInside(Location).
+     * Forgets the move budget of players that leave.
      *
-     * @param location    the location to shift
-     * @param worldBorder the world border to use for the shift
-     * @return the shifted location
-     */
-    private static Location getShiftedLocation(Location location, WorldBorder worldBorder) {
-        double coordinateScale = location.getWorld().getCoordinateScale();
-        // Gets a clone of the player's location. Not cloning this will cause the real player to
-        // move when we call Location.add().
-        Location playerLocation = location.clone();
-        // Make sure the player actually has their own world border.
-        Objects.requireNonNull(worldBorder);
-        // If the player is in a world with no coordinate scaling, we will just leave everything be.
-        if (coordinateScale != 1.0) {
-            // QuadWars' players are each in one Quadrant of the world. We will need to multiply
-            // our offsets by -1 in some cases to get the right quadrant.
-            Quadrant quadrant = getQuadrantFromLocation(worldBorder.getCenter());
-            double size = worldBorder.getSize();
-            // This is the "reverse engineered" algorithm for how Minecraft shifts the position of
-            // coordinates for world borders. You take the center, then subtract half the size of
-            // the border. You then subtract the distance from the origin to the border.
-            double xShift = worldBorder.getCenter().getX() - quadrant.xSign * size / 2 -
-                    (AXIS_BUFFER_OFFSET / coordinateScale * quadrant.xSign);
-            double zShift = worldBorder.getCenter().getZ() - quadrant.zSign * size / 2 -
-                    (AXIS_BUFFER_OFFSET / coordinateScale * quadrant.zSign);
-            // We then add our shifts to the player's location.
-            playerLocation = playerLocation.add(xShift, 0, zShift);
-        }
-        return playerLocation;
-        // And proceed to be sad about how long this took to figure out… ☹
+     * @param event the event that triggered this method
+     */
+    @EventHandler
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        UUID uniqueId = event.getPlayer().getUniqueId();
+        moveBudgets.remove(uniqueId);
+        unplacedRespawns.remove(uniqueId);
+        viewDistanceClipper.forget(uniqueId);
     }
     
     /**
-     * Gets the quadrant of a team.
+     * Gets the border of the quadrant a player's team is in, for the world they are in.
      *
-     * @param team the team to get the quadrant of
-     * @return the quadrant of the team
+     * @param player the player to get the border for
+     * @return the border, or null if the player is not on a team
      */
-    private static @NotNull Quadrant getQuadrant(Team team) {
-        return Quadrant.valueOf(QUADWARS_PREFIX.matcher(team.getName()).replaceFirst(""));
+    private QuadrantBorder getQuadrantBorder(Player player) {
+        Quadrant quadrant = membership.get(player);
+        return quadrant == null ? null : borderGeometry.get(player.getWorld(), quadrant);
     }
     
     /**
-     * Damages the player until they are back inside the border. This is not an anonymous function
-     * because I want to make sure I don't accidentally cache the current world border for the
-     * player.
+     * Damages the player if they are outside the border. This looks up the player's border every
+     * time because I want to make sure I don't accidentally cache the current world border for
+     * the player.
      *
-     * @param scheduledTask the task that is running this method
-     * @param player        the player to damage
+     * @param player the player to damage
+     * @return true if the player is still outside the border and should be checked next tick
      */
-    private void worldBorderDamageTask(ScheduledTask scheduledTask, Player player) {
+    private boolean damageIfOutside(Player player) {
         WorldBorder worldBorder = player.getWorldBorder();
-        if (worldBorder != null) {
-            Location shiftedLocation = getShiftedLocation(player);
-            if (worldBorder.isInside(shiftedLocation)) {
-                oobPlayers.remove(player);
-                scheduledTask.cancel();
-            } else {
-                Quadrant quadrant = getQuadrant(Objects.requireNonNull(
-                        Bukkit.getScoreboardManager().getMainScoreboard().getPlayerTeam(player)));
-                double size = worldBorder.getSize();
-                double xMin = quadrant.xSign *
-                        Math.min(Math.abs(worldBorder.getCenter().getX() - size / 2),
-                                Math.abs(worldBorder.getCenter().getX() + size / 2));
-                double zMin = quadrant.zSign *
-                        Math.min(Math.abs(worldBorder.getCenter().getX() - size / 2),
-                                Math.abs(worldBorder.getCenter().getX() + size / 2));
-                double distance =
-                        Math.hypot(Math.min(0, Math.abs(shiftedLocation.getX()) - Math.abs(xMin)),
-                                Math.min(0, Math.abs(shiftedLocation.getZ()) - Math.abs(zMin)));
-                
-                player.damage(worldBorder.getDamageAmount() *
-                        Math.floor(distance / worldBorder.getDamageBuffer()));
-            }
-        } else {
-            scheduledTask.cancel();
-            oobPlayers.remove(player);
+        QuadrantBorder quadrantBorder = getQuadrantBorder(player);
+        if (worldBorder == null || quadrantBorder == null) {
+            return false;
+        }
+        player.getLocation(damageLocation);
+        double x = damageLocation.getX();
+        double z = damageLocation.getZ();
+        if (quadrantBorder.isInside(x, z)) {
+            return false;
         }
+        double distance = Math.max(0, -quadrantBorder.signedDistance(x, z));
+        player.damage(worldBorder.getDamageAmount() *
+                Math.floor(distance / worldBorder.getDamageBuffer()));
+        return true;
     }
     
     /**
-     * Sets the world border for players when they respawn.
+     * Sets the world border for players when they respawn, and sends players who couldn't respawn
+     * at their team's spawn there without loading it on the server thread.
      *
      * @param event the event that triggered this method
      */
     @EventHandler
     public void onPlayerPostRespawn(PlayerPostRespawnEvent event) {
-        setPlayerWorldBorder(event.getPlayer());
+        Player player = event.getPlayer();
+        if (unplacedRespawns.remove(player.getUniqueId())) {
+            Quadrant quadrant = membership.get(player);
+            if (quadrant != null) {
+                spawnPrewarmer.getSpawnLocation(quadrant).thenAccept(player::teleportAsync);
+            }
+        }
+        setPlayerWorldBorder(player);
     }
     
     /**
@@ -380,46 +462,36 @@ public class WorldBorderController implements Listener {
      * @param player the player to set the world border for
      */
     private void setPlayerWorldBorder(Player player) {
+        moveBudgets.remove(player.getUniqueId());
         World world = player.getWorld();
         if (gameState != GameState.PREP ||
                 world.getEnvironment().equals(World.Environment.THE_END) ||
                 ignoredWorldKeys.contains(world.getKey())) {
             player.setWorldBorder(null);
+            viewDistanceClipper.restore(player);
         } else {
-            Team team = Bukkit.getScoreboardManager().getMainScoreboard().getPlayerTeam(player);
-            if (team != null) {
-                WorldBorder worldBorder = makeWorldBorder(getQuadrant(team), world);
-                player.setWorldBorder(worldBorder);
-                if (Bukkit.getPluginManager().isPluginEnabled("Apollo-Bukkit")) {
-                    player.getScheduler().runDelayed(plugin,
-                            scheduledTask -> LunarClientIntegration.setWorldBorders(player,
-                                    worldBorder.getSize(), getQuadrant(team), ignoredWorldKeys),
-                            null, 10);
+            Quadrant quadrant = membership.get(player);
+            if (quadrant != null) {
+                QuadrantBorder quadrantBorder = borderGeometry.get(world, quadrant);
+                player.setWorldBorder(quadrantBorder.getWorldBorder());
+                Location location = player.getLocation();
+                viewDistanceClipper.update(player, quadrantBorder, location.getX(),
+                        location.getZ());
+                if (lunarClientIntegration != null) {
+                    lunarClientIntegration.setWorldBorders(player, quadrantBorder.getSize(),
+                            quadrantBorder.getQuadrant(), ignoredWorldKeys);
+                }
+            } else {
+                viewDistanceClipper.restore(player);
+                if (lunarClientIntegration != null &&
+                        player.hasPermission(QuadWars.GAMEMASTER_PERMISSION)) {
+                    lunarClientIntegration.setGameMasterWorldBorders(player,
+                            worldBorderSize / world.getCoordinateScale(), ignoredWorldKeys);
                 }
-            } else if (Bukkit.getPluginManager().isPluginEnabled("Apollo-Bukkit") &&
-                    player.hasPermission(QuadWars.GAMEMASTER_PERMISSION)) {
-                player.getScheduler().runDelayed(plugin,
-                        scheduledTask -> LunarClientIntegration.setGameMasterWorldBorders(player,
-                                worldBorderSize / world.getCoordinateScale(), ignoredWorldKeys),
-                        null, 10);
             }
         }
     }
     
-    /**
-     * Prevents players from traveling to the end during the prep phase if needed, since controller
-     * the border there in unreasonable.
-     *
-     * @param event the event that triggered this method
-     */
-    @EventHandler
-    public void onPlayerPortal(PlayerPortalEvent event) {
-        if (!allowEndInPrepPhase &&
-                event.getTo().getWorld().getEnvironment().equals(World.Environment.THE_END)) {
-            event.setCancelled(true);
-        }
-    }
-    
     /**
      * Sends a message to the sender about the world border being set.
      *
@@ -636,112 +708,529 @@ public class WorldBorderController implements Listener {
     }
     
     /**
-     * Creates a new world border.
+     * Gets the rules that only apply in the prep phase.
      *
-     * @param quadrant the quadrant to make the world border for
-     * @param world    the world to make the world border in
-     * @return the new world border
-     */
-    private @NotNull WorldBorder makeWorldBorder(Quadrant quadrant, World world) {
-        WorldBorder worldBorder = Bukkit.createWorldBorder();
-        double scale = world.getCoordinateScale();
-        //DO NOT SCALE THE CENTER!!
-        //The API does it for you
-        // The 128 part is for preventing accidental cross-quadrant portal linkage.
-        worldBorder.setCenter(
-                (worldBorderSize / 2) * quadrant.xSign + (AXIS_BUFFER_OFFSET * quadrant.xSign),
-                (worldBorderSize / 2) * quadrant.zSign + (AXIS_BUFFER_OFFSET * quadrant.zSign));
-        //The size does need to be scaled though. Thanks Bukkit.
-        worldBorder.setSize(worldBorderSize / scale);
-        worldBorder.setDamageAmount(WORLD_BORDER_DAMAGE);
-        return worldBorder;
+     * @return the listener for the prep phase rules
+     */
+    @NotNull PrepRules getPrepRules() {
+        return prepRules;
     }
     
     /**
-     * Prevents pistons from moving outside active team quadrants.
-     *
-     * @param event the event that triggered this method
+     * The rules that only apply in the prep phase. They are only registered while the game is in
+     * the prep phase, so the events they handle cost nothing in the other phases.
      */
-    private void onBlockPistonEventHelper(BlockPistonEvent event) {
-        if (gameState == GameState.PREP) {
+    final class PrepRules implements Listener {
+        /**
+         * The item transfer verdicts for each world, by world UUID.
+         */
+        private final Map<UUID, BlockVerdictCache> verdictCaches = new HashMap<>();
+        /**
+         * The borders the verdicts were worked out for.
+         */
+        private BorderGeometry verdictGeometry;
+        /**
+         * The UUID of the world whose verdicts were used last.
+         */
+        private UUID lastVerdictWorld;
+        /**
+         * The verdicts that were used last, since big farms are usually all in one world.
+         */
+        private BlockVerdictCache lastVerdictCache;
+        
+        /**
+         * Schedules damage for players moving outside the world border, because the virtual one
+         * they get won't do it for us. Also clips the player's view distance when they move into
+         * a new chunk.
+         *
+         * @param event the event that triggered this method
+         */
+        @EventHandler
+        public void onPlayerMove(PlayerMoveEvent event) {
+            // The border is checked by block, so moves inside a block (including turning) can't
+            // cross it.
+            if (!event.hasChangedBlock()) {
+                return;
+            }
+            Player player = event.getPlayer();
+            QuadrantBorder quadrantBorder = getQuadrantBorder(player);
+            if (quadrantBorder == null) {
+                return;
+            }
+            Location to = event.getTo();
+            double x = to.getX();
+            double z = to.getZ();
+            Location from = event.getFrom();
+            if (from.getBlockX() >> 4 != to.getBlockX() >> 4 ||
+                    from.getBlockZ() >> 4 != to.getBlockZ() >> 4) {
+                viewDistanceClipper.update(player, quadrantBorder, x, z);
+            }
+            MoveBudget moveBudget = moveBudgets.get(player.getUniqueId());
+            if (moveBudget != null && moveBudget.covers(quadrantBorder, x, z)) {
+                return;
+            }
+            if (player.getWorldBorder() != null) {
+                if (quadrantBorder.isInside(x, z)) {
+                    double safeDistance =
+                            quadrantBorder.signedDistance(x, z) - SAFE_DISTANCE_MARGIN;
+                    if (safeDistance > 0) {
+                        moveBudgets.computeIfAbsent(player.getUniqueId(),
+                                ignored -> new MoveBudget()).reset(quadrantBorder, x, z,
+                                safeDistance);
+                    }
+                } else if (oobPlayers.add(player)) {
+                    World world = player.getWorld();
+                    damageTickers.computeIfAbsent(world.getUID(),
+                            ignored -> new BorderDamageTicker(world, plugin,
+                                    WorldBorderController.this::damageIfOutside,
+                                    oobPlayers::remove, handlerMetrics)).add(player);
+                }
+            }
+        }
+        
+        /**
+         * Prevents players from traveling to the end if needed, since controlling the border
+         * there is unreasonable.
+         *
+         * @param event the event that triggered this method
+         */
+        @EventHandler
+        public void onPlayerPortal(PlayerPortalEvent event) {
+            if (!allowEndInPrepPhase &&
+                    event.getTo().getWorld().getEnvironment().equals(World.Environment.THE_END)) {
+                event.setCancelled(true);
+            }
+        }
+        
+        /**
+         * Prevents pistons from moving outside active team quadrants.
+         *
+         * @param event the event that triggered this method
+         */
+        private void onBlockPistonEventHelper(BlockPistonEvent event) {
             Block piston = event.getBlock();
-            if (Arrays.stream(Quadrant.values())
-                    .map(quadrant -> makeWorldBorder(quadrant, piston.getWorld())).noneMatch(
-                            worldBorder -> worldBorder.isInside(
-                                    getShiftedLocation(piston.getLocation(), worldBorder)))) {
+            World world = piston.getWorld();
+            BorderGeometry geometry = borderGeometry;
+            ChunkClassification chunks = geometry.getChunks(world);
+            int x = piston.getX();
+            int z = piston.getZ();
+            if (chunks.getQuadrantAt(x, z) != null) {
+                return;
+            }
+            if (!chunks.isAxisBufferAt(x, z)) {
+                Location location = piston.getLocation();
+                for (Quadrant quadrant : Quadrant.values()) {
+                    if (geometry.get(world, quadrant).isInside(location)) {
+                        return;
+                    }
+                }
+            }
+            event.setCancelled(true);
+        }
+        
+        /**
+         * Sends events to the method that prevents pistons from moving outside active team
+         * quadrants.
+         *
+         * @param event the event that triggered this method
+         */
+        @EventHandler
+        public void onBlockPistonEvent(BlockPistonExtendEvent event) {
+            onBlockPistonEventHelper(event);
+        }
+        
+        /**
+         * Sends events to the method that prevents pistons from moving outside active team
+         * quadrants.
+         *
+         * @param event the event that triggered this method
+         */
+        @EventHandler
+        public void onBlockPistonEvent(BlockPistonRetractEvent event) {
+            onBlockPistonEventHelper(event);
+        }
+        
+        /**
+         * Prevents projectiles from doing damage outside their spawn quadrant.
+         *
+         * @param event the event that triggered this method
+         */
+        @EventHandler
+        public void onProjectileHitEvent(ProjectileHitEvent event) {
+            cancelOOBEntityEventIfNeeded(event);
+        }
+        
+        /**
+         * Starts following projectiles launched close enough to an edge that they could fly out
+         * of their quadrant. Projectiles launched deep inside a quadrant, or from outside one,
+         * aren't followed.
+         *
+         * @param event the event that triggered this method
+         */
+        @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+        public void onProjectileLaunch(ProjectileLaunchEvent event) {
+            Projectile projectile = event.getEntity();
+            World world = projectile.getWorld();
+            if (world.getEnvironment() == World.Environment.THE_END) {
+                return;
+            }
+            Location location = projectile.getLocation();
+            BorderGeometry geometry = borderGeometry;
+            Quadrant quadrant =
+                    geometry.getQuadrantAt(world, location.getBlockX(), location.getBlockZ());
+            if (quadrant != null) {
+                QuadrantBorder border = geometry.get(world, quadrant);
+                double x = location.getX();
+                double z = location.getZ();
+                if (border.signedDistance(x, z) < PROJECTILE_TRACK_RANGE) {
+                    projectileTracker.track(projectile, world, border, x, z);
+                }
+            }
+        }
+        
+        /**
+         * Stops water and lava from flowing out of the quadrant or buffer they are in.
+         *
+         * @param event the event that triggered this method
+         */
+        @EventHandler(ignoreCancelled = true)
+        public void onBlockFromTo(BlockFromToEvent event) {
+            cancelIfCrossing(event, event.getBlock(), event.getToBlock());
+        }
+        
+        /**
+         * Stops fire, sculk, vines, and the like from spreading out of the quadrant or buffer they
+         * are in.
+         *
+         * @param event the event that triggered this method
+         */
+        @EventHandler(ignoreCancelled = true)
+        public void onBlockSpread(BlockSpreadEvent event) {
+            cancelIfCrossing(event, event.getSource(), event.getBlock());
+        }
+        
+        /**
+         * Stops blocks from setting fire to blocks in another quadrant or the buffer, like lava
+         * lighting things across the edge.
+         *
+         * @param event the event that triggered this method
+         */
+        @EventHandler(ignoreCancelled = true)
+        public void onBlockIgnite(BlockIgniteEvent event) {
+            Block source = event.getIgnitingBlock();
+            if (source != null) {
+                cancelIfCrossing(event, source, event.getBlock());
+            }
+        }
+        
+        /**
+         * Stops trees and other structures from growing into another quadrant or the buffer. The
+         * parts on the sapling's side still grow.
+         *
+         * @param event the event that triggered this method
+         */
+        @EventHandler(ignoreCancelled = true)
+        public void onStructureGrow(StructureGrowEvent event) {
+            World world = event.getWorld();
+            if (world.getEnvironment() != World.Environment.THE_END) {
+                BorderGeometry geometry = borderGeometry;
+                Location location = event.getLocation();
+                Quadrant source = geometry.getQuadrantAt(world, location.getBlockX(),
+                        location.getBlockZ());
+                event.getBlocks().removeIf(
+                        state -> geometry.getQuadrantAt(world, state.getX(), state.getZ()) !=
+                                source);
+            }
+        }
+        
+        /**
+         * Stops blocks forming right at an edge, like cobblestone where lava on one side meets
+         * water on the other.
+         *
+         * @param event the event that triggered this method
+         */
+        @EventHandler(ignoreCancelled = true)
+        public void onBlockForm(BlockFormEvent event) {
+            Block block = event.getBlock();
+            World world = block.getWorld();
+            if (world.getEnvironment() != World.Environment.THE_END) {
+                BorderGeometry geometry = borderGeometry;
+                int x = block.getX();
+                int z = block.getZ();
+                Quadrant quadrant = geometry.getQuadrantAt(world, x, z);
+                if (geometry.getQuadrantAt(world, x + 1, z) != quadrant ||
+                        geometry.getQuadrantAt(world, x - 1, z) != quadrant ||
+                        geometry.getQuadrantAt(world, x, z + 1) != quadrant ||
+                        geometry.getQuadrantAt(world, x, z - 1) != quadrant) {
+                    event.setCancelled(true);
+                }
+            }
+        }
+        
+        /**
+         * Stops hoppers, droppers, and hopper minecarts from moving items into another quadrant or
+         * the buffer. Blocks far enough from every edge are remembered as safe, so a busy hopper
+         * chain costs one lookup per transfer.
+         *
+         * @param event the event that triggered this method
+         */
+        @EventHandler(ignoreCancelled = true)
+        public void onInventoryMoveItem(InventoryMoveItemEvent event) {
+            Location initiator = event.getInitiator().getLocation();
+            if (initiator == null) {
+                return;
+            }
+            World world = initiator.getWorld();
+            if (world == null || world.getEnvironment() == World.Environment.THE_END ||
+                    getVerdict(world, initiator.getBlockX(), initiator.getBlockY(),
+                            initiator.getBlockZ()) == BlockVerdictCache.SAFE) {
+                return;
+            }
+            Location source = event.getSource().getLocation();
+            Location destination = event.getDestination().getLocation();
+            if (source != null && destination != null &&
+                    borderGeometry.getQuadrantAt(world, source.getBlockX(), source.getBlockZ()) !=
+                            borderGeometry.getQuadrantAt(world, destination.getBlockX(),
+                                    destination.getBlockZ())) {
                 event.setCancelled(true);
             }
         }
-    }
-    
-    /**
-     * Sends events to the method that prevents pistons from moving outside active team quadrants.
-     *
-     * @param event the event that triggered this method
-     */
-    @EventHandler
-    public void onBlockPistonEvent(BlockPistonExtendEvent event) {
-        onBlockPistonEventHelper(event);
-    }
-    
-    /**
-     * Sends events to the method that prevents pistons from moving outside active team quadrants.
-     *
-     * @param event the event that triggered this method
-     */
-    @EventHandler
-    public void onBlockPistonEvent(BlockPistonRetractEvent event) {
-        onBlockPistonEventHelper(event);
-    }
-    
-    /**
-     * Prevents projectiles from doing damage outside their spawn quadrant in prep phase.
-     *
-     * @param event the event that triggered this method
-     */
-    @EventHandler
-    public void onProjectileHitEvent(ProjectileHitEvent event) {
-        cancelOOBEntityEventIfNeeded(event);
-    }
-    
-    /**
-     * Prevents entities from exploding outside their spawn quadrant in prep phase.
-     *
-     * @param event the event that triggered this method
-     * @param <T>   the type of event
-     */
-    private <T extends EntityEvent & Cancellable> void cancelOOBEntityEventIfNeeded(T event) {
-        if (gameState == GameState.PREP) {
+        
+        /**
+         * Stops dispensers and droppers near an edge from firing into another quadrant or the
+         * buffer.
+         *
+         * @param event the event that triggered this method
+         */
+        @EventHandler(ignoreCancelled = true)
+        public void onBlockDispense(BlockDispenseEvent event) {
+            Block block = event.getBlock();
+            World world = block.getWorld();
+            if (world.getEnvironment() == World.Environment.THE_END ||
+                    getVerdict(world, block.getX(), block.getY(), block.getZ()) ==
+                            BlockVerdictCache.SAFE) {
+                return;
+            }
+            if (block.getBlockData() instanceof Directional directional) {
+                Block target = block.getRelative(directional.getFacing(), TRANSFER_REACH);
+                if (borderGeometry.getQuadrantAt(world, block.getX(), block.getZ()) !=
+                        borderGeometry.getQuadrantAt(world, target.getX(), target.getZ())) {
+                    event.setCancelled(true);
+                }
+            }
+        }
+        
+        /**
+         * Forgets the item transfer verdict for a block that was broken.
+         *
+         * @param event the event that triggered this method
+         */
+        @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+        public void onBlockBreak(BlockBreakEvent event) {
+            forgetVerdict(event.getBlock());
+        }
+        
+        /**
+         * Forgets the item transfer verdict for a block that was placed.
+         *
+         * @param event the event that triggered this method
+         */
+        @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+        public void onBlockPlace(BlockPlaceEvent event) {
+            forgetVerdict(event.getBlock());
+        }
+        
+        /**
+         * Gets the item transfer verdict for a block, working it out if it isn't known. A block
+         * is safe if everything within {@link #TRANSFER_REACH} of it is in the same quadrant.
+         *
+         * @param world the world the block is in
+         * @param x     the x coordinate of the block
+         * @param y     the y coordinate of the block
+         * @param z     the z coordinate of the block
+         * @return {@link BlockVerdictCache#SAFE} or {@link BlockVerdictCache#UNSAFE}
+         */
+        private byte getVerdict(World world, int x, int y, int z) {
+            BlockVerdictCache cache = getVerdictCache(world);
+            long key = Block.getBlockKey(x, y, z);
+            byte verdict = cache.get(key);
+            if (verdict == BlockVerdictCache.UNKNOWN) {
+                BorderGeometry geometry = borderGeometry;
+                Quadrant quadrant = geometry.getQuadrantAt(world, x, z);
+                // Quadrants are rectangles, so the corners being inside means the rest is too.
+                boolean safe = quadrant != null &&
+                        geometry.getQuadrantAt(world, x - TRANSFER_REACH, z - TRANSFER_REACH) ==
+                                quadrant &&
+                        geometry.getQuadrantAt(world, x - TRANSFER_REACH, z + TRANSFER_REACH) ==
+                                quadrant &&
+                        geometry.getQuadrantAt(world, x + TRANSFER_REACH, z - TRANSFER_REACH) ==
+                                quadrant &&
+                        geometry.getQuadrantAt(world, x + TRANSFER_REACH, z + TRANSFER_REACH) ==
+                                quadrant;
+                verdict = safe ? BlockVerdictCache.SAFE : BlockVerdictCache.UNSAFE;
+                cache.put(key, verdict);
+            }
+            return verdict;
+        }
+        
+        /**
+         * Forgets the item transfer verdict for a block, so whatever is there now gets a new one.
+         *
+         * @param block the block
+         */
+        private void forgetVerdict(Block block) {
+            getVerdictCache(block.getWorld()).remove(block.getBlockKey());
+        }
+        
+        /**
+         * Gets the item transfer verdicts for a world. They are all thrown away when the borders
+         * change.
+         *
+         * @param world the world
+         * @return the verdicts
+         */
+        private BlockVerdictCache getVerdictCache(World world) {
+            BorderGeometry geometry = borderGeometry;
+            if (geometry != verdictGeometry) {
+                verdictCaches.clear();
+                verdictGeometry = geometry;
+                lastVerdictWorld = null;
+            }
+            UUID worldId = world.getUID();
+            if (!worldId.equals(lastVerdictWorld)) {
+                lastVerdictCache = verdictCaches.computeIfAbsent(worldId,
+                        ignored -> new BlockVerdictCache());
+                lastVerdictWorld = worldId;
+            }
+            return lastVerdictCache;
+        }
+        
+        /**
+         * Cancels a block change that goes from one quadrant to another, or between a quadrant
+         * and the buffer. The End isn't split into quadrants, so it is left alone.
+         *
+         * @param event  the block change
+         * @param source the block the change comes from
+         * @param target the block that would change
+         */
+        private void cancelIfCrossing(Cancellable event, Block source, Block target) {
+            World world = target.getWorld();
+            if (world.getEnvironment() != World.Environment.THE_END) {
+                BorderGeometry geometry = borderGeometry;
+                if (geometry.getQuadrantAt(world, source.getX(), source.getZ()) !=
+                        geometry.getQuadrantAt(world, target.getX(), target.getZ())) {
+                    event.setCancelled(true);
+                }
+            }
+        }
+        
+        /**
+         * Cancels an entity's event if the entity is outside the quadrant it came from.
+         *
+         * @param event the event that triggered this method
+         * @param <T>   the type of event
+         */
+        private <T extends EntityEvent & Cancellable> void cancelOOBEntityEventIfNeeded(
+                T event) {
             Entity projectile = event.getEntity();
             Location origin = projectile.getOrigin();
             if (origin != null) {
-                WorldBorder worldBorder =
-                        makeWorldBorder(getQuadrantFromLocation(origin), projectile.getWorld());
-                if (!worldBorder.isInside(
-                        getShiftedLocation(projectile.getLocation(), worldBorder))) {
-                        event.setCancelled(true);
+                World world = projectile.getWorld();
+                Quadrant source = getQuadrantFromLocation(origin);
+                Location location = projectile.getLocation();
+                BorderGeometry geometry = borderGeometry;
+                ChunkClassification chunks = geometry.getChunks(world);
+                int x = location.getBlockX();
+                int z = location.getBlockZ();
+                Quadrant chunkQuadrant = chunks.getQuadrantAt(x, z);
+                boolean inside = chunkQuadrant != null ? chunkQuadrant == source :
+                        !chunks.isAxisBufferAt(x, z) &&
+                                geometry.get(world, source).isInside(location);
+                if (!inside) {
+                    event.setCancelled(true);
                 }
             }
         }
-    }
-    
-    /**
-     * Prevents entities from exploding outside their spawn quadrant in prep phase.
-     *
-     * @param event the event that triggered this method
-     */
-    @EventHandler
-    public void onEntityExplodeEvent(EntityExplodeEvent event) {
-        cancelOOBEntityEventIfNeeded(event);
-    }
-    
-    /**
-     * Prevents entities from changing blocks outside their spawn quadrant in prep phase.
-     *
-     * @param event the event that triggered this method
-     */
-    @EventHandler
-    public void onEntityChangeBlockEvent(EntityChangeBlockEvent event) {
-        cancelOOBEntityEventIfNeeded(event);
+        
+        /**
+         * Stops explosions from breaking blocks outside the quadrant the exploding entity came
+         * from.
+         *
+         * @param event the event that triggered this method
+         */
+        @EventHandler
+        public void onEntityExplodeEvent(EntityExplodeEvent event) {
+            Location location = event.getLocation();
+            Location origin = event.getEntity().getOrigin();
+            trimExplosion(event, location,
+                    getQuadrantFromLocation(origin != null ? origin : location), origin != null,
+                    event.blockList());
+        }
+        
+        /**
+         * Stops block explosions, like beds in the Nether, from breaking blocks outside the
+         * quadrant they are in.
+         *
+         * @param event the event that triggered this method
+         */
+        @EventHandler
+        public void onBlockExplodeEvent(BlockExplodeEvent event) {
+            Location location = event.getBlock().getLocation();
+            trimExplosion(event, location, getQuadrantFromLocation(location), false,
+                    event.blockList());
+        }
+        
+        /**
+         * Takes the blocks outside the source quadrant out of an explosion. An explosion from
+         * something that came from the source quadrant but went off outside it, like a TNT cannon
+         * shot that landed across the axis, is cancelled outright. Explosions too far from the
+         * edge to reach it are left alone without checking each block. The End and ignored worlds
+         * aren't split into quadrants, so their explosions are left alone.
+         *
+         * @param event     the explosion
+         * @param location  where the explosion is
+         * @param source    the quadrant the explosion came from
+         * @param hasOrigin whether the source is where the exploding thing came from, rather than
+         *                  where it went off
+         * @param blocks    the blocks the explosion will break, which may be changed
+         */
+        private void trimExplosion(Cancellable event, Location location, Quadrant source,
+                                   boolean hasOrigin, List<Block> blocks) {
+            World world = location.getWorld();
+            if (world.getEnvironment() == World.Environment.THE_END ||
+                    ignoredWorldKeys.contains(world.getKey())) {
+                return;
+            }
+            BorderGeometry geometry = borderGeometry;
+            QuadrantBorder border = geometry.get(world, source);
+            double x = location.getX();
+            double z = location.getZ();
+            double distance = border.signedDistance(x, z);
+            if (distance < 0 && hasOrigin) {
+                event.setCancelled(true);
+            } else if (distance <= MAX_EXPLOSION_REACH) {
+                ChunkClassification chunks = geometry.getChunks(world);
+                blocks.removeIf(block -> {
+                    int blockX = block.getX();
+                    int blockZ = block.getZ();
+                    Quadrant chunkQuadrant = chunks.getQuadrantAt(blockX, blockZ);
+                    if (chunkQuadrant != null) {
+                        return chunkQuadrant != source;
+                    }
+                    return chunks.isAxisBufferAt(blockX, blockZ) ||
+                            !border.isInside(blockX + 0.5, blockZ + 0.5);
+                });
+            }
+        }
+        
+        /**
+         * Prevents entities from changing blocks outside their spawn quadrant.
+         *
+         * @param event the event that triggered this method
+         */
+        @EventHandler
+        public void onEntityChangeBlockEvent(EntityChangeBlockEvent event) {
+            cancelOOBEntityEventIfNeeded(event);
+        }
     }
 }
@@ -4,8 +4,10 @@ import org.bukkit.Bukkit;
 import org.bukkit.NamespacedKey;
 import org.bukkit.World;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
-import org.bukkit.plugin.Plugin;
+import org.bukkit.event.world.WorldLoadEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
 
 import java.util.Collection;
 
@@ -23,16 +25,29 @@ public class WorldController implements Listener {
      * If the plugin is running in hardcore mode.
      */
     private final boolean hardcore;
+    /**
+     * Sets the view, simulation, and send distances of the worlds for each phase.
+     */
+    private final DistanceProfiles distanceProfiles;
+    /**
+     * The phase the game is in.
+     */
+    private GameState state;
     
     /**
-     * Creates a world control object.
+     * Creates a world control object, and starts moving the worlds to the distances for the
+     * current phase.
      *
      * @param ignoredWorldKeys the keys to ignore
      * @param plugin the plugin creating the object
      */
-    WorldController(Collection<NamespacedKey> ignoredWorldKeys, Plugin plugin) {
+    WorldController(Collection<NamespacedKey> ignoredWorldKeys, QuadWars plugin) {
         this.ignoredWorldKeys = ignoredWorldKeys;
         hardcore = plugin.getConfig().getBoolean(QuadWars.HARDCORE_CONFIG_PATH);
+        state = plugin.getGameState();
+        distanceProfiles =
+                new DistanceProfiles(plugin, ignoredWorldKeys, plugin.getHandlerMetrics());
+        distanceProfiles.apply(state);
     }
     
     /**
@@ -42,7 +57,8 @@ public class WorldController implements Listener {
      */
     @EventHandler
     public void onGameStateChange(GameStateChangeEvent event) {
-        GameState state = event.getState();
+        state = event.getState();
+        distanceProfiles.apply(state);
         for (World world : Bukkit.getWorlds().stream()
                 .filter(world -> !ignoredWorldKeys.contains(world.getKey())).toList()) {
             switch (state) {
@@ -57,4 +73,24 @@ public class WorldController implements Listener {
             }
         }
     }
+    
+    /**
+     * Moves newly loaded worlds to the distances for the current phase.
+     *
+     * @param event the event that triggered this method
+     */
+    @EventHandler
+    public void onWorldLoad(WorldLoadEvent event) {
+        distanceProfiles.apply(event.getWorld(), state);
+    }
+    
+    /**
+     * Forgets the distances of unloading worlds.
+     *
+     * @param event the event that triggered this method
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onWorldUnload(WorldUnloadEvent event) {
+        distanceProfiles.forget(event.getWorld());
+    }
 }
@@ -0,0 +1,943 @@
+package io.github.minus1over12.quadwars;
+
+import net.kyori.adventure.audience.Audience;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.NamespacedKey;
+import org.bukkit.World;
+import org.bukkit.WorldCreator;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Puts the game worlds back the way they were before a match. A template of each world's chunk
+ * data is taken during the pregame phase, and a copy of it is kept next to the world, so a reset
+ * only has to unload the world, swap the folders, and load it again. Copying and deleting happen
+ * off the server thread. The server never unloads its main world, so that one is swapped the next
+ * time the server starts, before the world is loaded.
+ *
+ * @author War Pigeon
+ */
+final class WorldResetter {
+    /**
+     * The command for resetting worlds.
+     */
+    static final String RESET_COMMAND = "qwreset";
+    /**
+     * The subcommand to take the templates.
+     */
+    static final String SNAPSHOT_COMMAND = "snapshot";
+    /**
+     * The subcommand to show which worlds can be reset.
+     */
+    static final String STATUS_COMMAND = "status";
+    /**
+     * The path to whether resets are turned on in the config.
+     */
+    private static final String ENABLED_CONFIG_PATH = "worldReset.enabled";
+    /**
+     * The name of the file that lists what to do the next time the server starts.
+     */
+    private static final String PENDING_FILE_NAME = "world-reset.yml";
+    /**
+     * The name of the folder in the data folder the templates are kept in.
+     */
+    private static final String TEMPLATES_FOLDER_NAME = "templates";
+    /**
+     * The path to the worlds to reset in the pending file.
+     */
+    private static final String RESETS_PATH = "resets";
+    /**
+     * The path to the worlds to take templates of in the pending file.
+     */
+    private static final String SNAPSHOTS_PATH = "snapshots";
+    /**
+     * Added to a world's folder name for the copy of its template waiting to be swapped in.
+     */
+    private static final String STAGED_SUFFIX = ".qwstaged";
+    /**
+     * Added to a world's folder name, with the time, for the chunk data swapped out of it.
+     */
+    private static final String RETIRED_SUFFIX = ".qwretired-";
+    /**
+     * Added to the name of a folder while it is being copied.
+     */
+    private static final String TEMP_SUFFIX = ".tmp";
+    /**
+     * The names of the folders that hold chunk data.
+     */
+    private static final Set<String> CHUNK_FOLDER_NAMES = Set.of("region", "entities", "poi");
+    /**
+     * How deep in a world folder the chunk data folders can be. The Nether and End keep theirs
+     * in a folder for the dimension.
+     */
+    private static final int CHUNK_FOLDER_DEPTH = 2;
+    /**
+     * The name of the file that holds the world's time, weather, border, and dragon fight.
+     */
+    static final String LEVEL_FILE_NAME = "level.dat";
+    /**
+     * The plugin used for scheduling tasks.
+     */
+    private final QuadWars plugin;
+    /**
+     * Where to log problems.
+     */
+    private final Logger logger;
+    /**
+     * The keys of worlds to leave alone.
+     */
+    private final Collection<NamespacedKey> ignoredWorldKeys;
+    /**
+     * The key of the lobby world, where players in a world being reset are sent.
+     */
+    private final NamespacedKey lobbyWorldKey;
+    /**
+     * Whether the worlds are reset when the post-game phase ends.
+     */
+    private final boolean enabled;
+    /**
+     * The folder the templates are kept in.
+     */
+    private final Path templatesFolder;
+    /**
+     * The file that lists what to do the next time the server starts.
+     */
+    private final Path pendingFile;
+    /**
+     * The file the pending list is written to before being moved into place.
+     */
+    private final Path tempFile;
+    /**
+     * Held while writing the pending file, so two writes don't mix.
+     */
+    private final Object writeLock = new Object();
+    /**
+     * Held while copying or swapping a world's files, by world name.
+     */
+    private final Map<String, Object> worldLocks = new ConcurrentHashMap<>();
+    /**
+     * Held while a world's chunk data folders are being renamed, by world name.
+     */
+    private final Map<String, Object> swapLocks = new ConcurrentHashMap<>();
+    /**
+     * Where the chunk data swapped out of each world was moved to while it is held, by world
+     * name.
+     */
+    private final Map<String, Path> retiredFolders = new ConcurrentHashMap<>();
+    /**
+     * The retired folders to delete once they are no longer held.
+     */
+    private final List<Path> heldRetiredFolders = new ArrayList<>();
+    /**
+     * The worlds to reset the next time the server starts.
+     */
+    private final Set<String> pendingResets = new LinkedHashSet<>();
+    /**
+     * The worlds to take templates of the next time the server starts.
+     */
+    private final Set<String> pendingSnapshots = new LinkedHashSet<>();
+    /**
+     * Whether worlds are being reset or having their templates taken.
+     */
+    private volatile boolean busy;
+    /**
+     * How many things need the chunk data of the last match kept until they are done with it.
+     */
+    private int retiredHolds;
+    
+    /**
+     * Creates a world resetter, and starts cleaning up after the last reset and copying the
+     * templates next to the worlds off the server thread.
+     *
+     * @param plugin           the plugin to get settings from and use for scheduling tasks
+     * @param ignoredWorldKeys the keys of worlds to leave alone
+     * @param lobbyWorldKey    the key of the lobby world
+     */
+    WorldResetter(@NotNull QuadWars plugin, @NotNull Collection<NamespacedKey> ignoredWorldKeys,
+                  @NotNull NamespacedKey lobbyWorldKey) {
+        this.plugin = plugin;
+        logger = plugin.getLogger();
+        this.ignoredWorldKeys = ignoredWorldKeys;
+        this.lobbyWorldKey = lobbyWorldKey;
+        enabled = plugin.getConfig().getBoolean(ENABLED_CONFIG_PATH);
+        Path dataFolder = plugin.getDataFolder().toPath();
+        templatesFolder = dataFolder.resolve(TEMPLATES_FOLDER_NAME);
+        pendingFile = dataFolder.resolve(PENDING_FILE_NAME);
+        tempFile = pendingFile.resolveSibling(PENDING_FILE_NAME + TEMP_SUFFIX);
+        loadPending();
+        Map<String, Path> worldFolders = new LinkedHashMap<>();
+        for (World world : getGameWorlds()) {
+            worldFolders.put(world.getName(), world.getWorldFolder().toPath());
+        }
+        Path worldContainer = Bukkit.getWorldContainer().toPath();
+        Bukkit.getAsyncScheduler().runNow(plugin,
+                scheduledTask -> prepare(worldContainer, worldFolders));
+    }
+    
+    /**
+     * Carries out the resets and templates that had to wait for the server to start, before any
+     * world is loaded. Does nothing if worlds are already loaded, such as after a reload.
+     *
+     * @param dataFolder     the data folder of the plugin
+     * @param worldContainer the folder the worlds are in
+     * @param logger         where to log progress and problems
+     */
+    static void applyPending(@NotNull Path dataFolder, @NotNull Path worldContainer,
+                             @NotNull Logger logger) {
+        Path pendingFile = dataFolder.resolve(PENDING_FILE_NAME);
+        if (!Bukkit.getWorlds().isEmpty() || !Files.exists(pendingFile)) {
+            return;
+        }
+        YamlConfiguration pending = new YamlConfiguration();
+        try {
+            pending.loadFromString(Files.readString(pendingFile, StandardCharsets.UTF_8));
+        } catch (IOException | InvalidConfigurationException e) {
+            logger.log(Level.SEVERE, "Could not read " + pendingFile + ", no worlds were reset", e);
+            return;
+        }
+        Path templatesFolder = dataFolder.resolve(TEMPLATES_FOLDER_NAME);
+        // Resets go first, so a template taken after a match that wasn't reset yet doesn't keep
+        // the match.
+        for (String name : pending.getStringList(RESETS_PATH)) {
+            Path template = templatesFolder.resolve(name);
+            if (!Files.isDirectory(template)) {
+                logger.warning(name + " has no template, so it was not reset");
+                continue;
+            }
+            try {
+                swap(worldContainer.resolve(name), template);
+                logger.info("Reset " + name + " from its template");
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, "Could not reset " + name, e);
+            }
+        }
+        for (String name : pending.getStringList(SNAPSHOTS_PATH)) {
+            try {
+                takeTemplate(worldContainer.resolve(name), templatesFolder.resolve(name));
+                logger.info("Took the template of " + name);
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, "Could not take the template of " + name, e);
+            }
+        }
+        try {
+            Files.delete(pendingFile);
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Could not delete " + pendingFile +
+                    ", the same worlds will be reset again next time", e);
+        }
+    }
+    
+    /**
+     * Handles the reset command.
+     *
+     * @param sender the sender of the command
+     * @param args   the arguments of the command
+     * @return false if the usage should be shown
+     */
+    boolean processCommand(@NotNull Audience sender, @NotNull String[] args) {
+        if (args.length != 1) {
+            return false;
+        }
+        switch (args[0].toLowerCase(Locale.ROOT)) {
+            case SNAPSHOT_COMMAND -> snapshot(sender);
+            case STATUS_COMMAND -> sendStatus(sender);
+            default -> {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Gets whether the worlds are reset when the post-game phase ends.
+     *
+     * @return true if resets are turned on in the config
+     */
+    boolean isEnabled() {
+        return enabled;
+    }
+    
+    /**
+     * Gets whether worlds are being reset or having their templates taken. Some of the game worlds
+     * may be unloaded while this is true.
+     *
+     * @return true if worlds are being reset or copied
+     */
+    boolean isBusy() {
+        return busy;
+    }
+    
+    /**
+     * Resets every game world that has a template. Players still in them are sent to the lobby
+     * first. The main world, and any world that won't unload, is reset the next time the server
+     * starts instead. Must be called on the server thread.
+     *
+     * @param sender where to send messages about worlds that can't be reset now
+     * @return a future that completes once every world that could be reset is loaded again, and
+     * fails if any of them couldn't be reset
+     */
+    CompletableFuture<Void> reset(@NotNull Audience sender) {
+        World lobby = Bukkit.getWorld(lobbyWorldKey);
+        if (lobby == null) {
+            return CompletableFuture.failedFuture(
+                    new IllegalStateException("The lobby world is not loaded"));
+        }
+        busy = true;
+        Location lobbySpawn = lobby.getSpawnLocation();
+        List<CompletableFuture<Void>> resets = new ArrayList<>();
+        for (World world : getGameWorlds()) {
+            String name = world.getName();
+            Path template = templatesFolder.resolve(name);
+            if (pendingSnapshots.remove(name)) {
+                sender.sendMessage(Component.text("The template of " + name +
+                        " is only taken when the server starts, so it was left as it is. Take " +
+                        "its template again with /qwreset snapshot.").color(NamedTextColor.RED));
+            } else if (!Files.isDirectory(template)) {
+                sender.sendMessage(Component.text(name +
+                        " has no template, so it was left as it is.").color(NamedTextColor.RED));
+            } else if (isMainWorld(world)) {
+                pendingResets.add(name);
+                sender.sendMessage(Component.text(name + " is the main world, so it will be " +
+                        "reset the next time the server starts."));
+            } else {
+                CompletableFuture<Void> worldReset;
+                try {
+                    worldReset = resetWorld(sender, world, lobbySpawn, template);
+                } catch (RuntimeException e) {
+                    worldReset = CompletableFuture.failedFuture(e);
+                }
+                resets.add(worldReset.whenComplete((ignored, throwable) -> {
+                    if (throwable != null) {
+                        logger.log(Level.SEVERE, "Could not reset " + name, throwable);
+                        sender.sendMessage(Component.text("Could not reset " + name +
+                                ", check the console.").color(NamedTextColor.RED));
+                    }
+                }));
+            }
+        }
+        savePending();
+        return CompletableFuture.allOf(resets.toArray(CompletableFuture[]::new))
+                .whenComplete((ignored, throwable) -> busy = false);
+    }
+    
+    /**
+     * Resets one world, which must not be the main world.
+     *
+     * @param sender     where to send a message if the world can't be unloaded
+     * @param world      the world
+     * @param lobbySpawn where to send players still in the world
+     * @param template   the template of the world
+     * @return a future that completes once the world is loaded again, and fails if it couldn't be
+     * reset
+     */
+    private CompletableFuture<Void> resetWorld(Audience sender, World world, Location lobbySpawn,
+                                               Path template) {
+        String name = world.getName();
+        Path worldFolder = world.getWorldFolder().toPath();
+        WorldCreator creator = new WorldCreator(name, world.getKey()).copy(world);
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        CompletableFuture.allOf(world.getPlayers().stream()
+                .map(player -> player.teleportAsync(lobbySpawn))
+                .toArray(CompletableFuture[]::new)).whenComplete((ignored, throwable) -> {
+            try {
+                Bukkit.getGlobalRegionScheduler().execute(plugin, () -> {
+                    try {
+                        // Nothing from the match is kept, so there is no point saving it.
+                        if (!Bukkit.unloadWorld(world, false)) {
+                            pendingResets.add(name);
+                            savePending();
+                            sender.sendMessage(Component.text(name + " could not be unloaded, " +
+                                    "so it will be reset the next time the server starts."));
+                            done.complete(null);
+                            return;
+                        }
+                        Bukkit.getAsyncScheduler().runNow(plugin, scheduledTask ->
+                                swapAndReload(name, worldFolder, template, creator, done));
+                    } catch (RuntimeException e) {
+                        done.completeExceptionally(e);
+                    }
+                });
+            } catch (RuntimeException e) {
+                done.completeExceptionally(e);
+            }
+        });
+        return done;
+    }
+    
+    /**
+     * Swaps an unloaded world's chunk data for its template and loads it again, whether or not
+     * the swap worked. Runs off the server thread.
+     *
+     * @param name        the name of the world
+     * @param worldFolder the folder of the world
+     * @param template    the template of the world
+     * @param creator     loads the world again
+     * @param done        completed once the world is loaded again, or failed if the swap failed
+     */
+    private void swapAndReload(String name, Path worldFolder, Path template, WorldCreator creator,
+                               CompletableFuture<Void> done) {
+        Path retired = null;
+        Throwable failure = null;
+        try {
+            synchronized (getWorldLock(name)) {
+                synchronized (getSwapLock(name)) {
+                    retired = swap(worldFolder, template);
+                    synchronized (this) {
+                        if (retiredHolds > 0) {
+                            retiredFolders.put(name, retired);
+                        }
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            failure = e;
+        } finally {
+            reload(creator, done, failure);
+        }
+        if (retired != null) {
+            discardRetired(retired);
+        }
+        stageSafely(name, template, worldFolder);
+    }
+    
+    /**
+     * Takes a template of every game world. Each world is unloaded while it is copied, so this
+     * only works in the pregame phase, and the main world's template is taken the next time the
+     * server starts.
+     *
+     * @param sender where to send progress
+     */
+    private void snapshot(Audience sender) {
+        if (plugin.getGameState() != GameState.PREGAME) {
+            sender.sendMessage(Component.text(
+                    "Templates can only be taken during the pregame phase.")
+                    .color(NamedTextColor.RED));
+            return;
+        }
+        if (busy) {
+            sender.sendMessage(Component.text("The worlds are already being reset or copied.")
+                    .color(NamedTextColor.RED));
+            return;
+        }
+        busy = true;
+        List<CompletableFuture<Void>> snapshots = new ArrayList<>();
+        for (World world : getGameWorlds()) {
+            String name = world.getName();
+            if (!world.getPlayers().isEmpty()) {
+                sender.sendMessage(Component.text("Everyone has to leave " + name +
+                        " before its template can be taken.").color(NamedTextColor.RED));
+            } else if (isMainWorld(world)) {
+                world.save();
+                pendingSnapshots.add(name);
+                sender.sendMessage(Component.text(name + " is the main world, so its template " +
+                        "will be taken the next time the server starts."));
+            } else {
+                CompletableFuture<Void> worldSnapshot;
+                try {
+                    worldSnapshot = snapshotWorld(sender, world);
+                } catch (RuntimeException e) {
+                    worldSnapshot = CompletableFuture.failedFuture(e);
+                }
+                snapshots.add(worldSnapshot.whenComplete((ignored, throwable) -> {
+                    if (throwable == null) {
+                        sender.sendMessage(Component.text("Took the template of " + name + "."));
+                    } else {
+                        logger.log(Level.SEVERE, "Could not take the template of " + name,
+                                throwable);
+                        sender.sendMessage(Component.text("Could not take the template of " +
+                                name + ", check the console.").color(NamedTextColor.RED));
+                    }
+                }));
+            }
+        }
+        savePending();
+        CompletableFuture.allOf(snapshots.toArray(CompletableFuture[]::new))
+                .whenComplete((ignored, throwable) -> busy = false);
+    }
+    
+    /**
+     * Takes the template of one world, which must not be the main world.
+     *
+     * @param sender where to send a message if the world can't be unloaded
+     * @param world  the world
+     * @return a future that completes once the world is loaded again, and fails if the template
+     * couldn't be taken
+     */
+    private CompletableFuture<Void> snapshotWorld(Audience sender, World world) {
+        String name = world.getName();
+        Path worldFolder = world.getWorldFolder().toPath();
+        WorldCreator creator = new WorldCreator(name, world.getKey()).copy(world);
+        if (!Bukkit.unloadWorld(world, true)) {
+            sender.sendMessage(Component.text(name + " could not be unloaded, so its template " +
+                    "was not taken.").color(NamedTextColor.RED));
+            return CompletableFuture.completedFuture(null);
+        }
+        Path template = templatesFolder.resolve(name);
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        Bukkit.getAsyncScheduler().runNow(plugin, scheduledTask -> {
+            Throwable failure = null;
+            try {
+                synchronized (getWorldLock(name)) {
+                    takeTemplate(worldFolder, template);
+                }
+            } catch (IOException | RuntimeException e) {
+                failure = e;
+            } finally {
+                reload(creator, done, failure);
+            }
+            if (failure == null && enabled) {
+                stageSafely(name, template, worldFolder);
+            }
+        });
+        return done;
+    }
+    
+    /**
+     * Loads a world again on the server thread, then finishes its future.
+     *
+     * @param creator loads the world
+     * @param done    completed once the world is loaded, or failed if it couldn't be or the
+     *                failure isn't null
+     * @param failure why the world's files couldn't be changed, or null if they were
+     */
+    private void reload(WorldCreator creator, CompletableFuture<Void> done,
+                        @Nullable Throwable failure) {
+        try {
+            Bukkit.getGlobalRegionScheduler().execute(plugin, () -> {
+                try {
+                    if (creator.createWorld() == null) {
+                        done.completeExceptionally(failure != null ? failure :
+                                new IllegalStateException("Could not load " + creator.name()));
+                    } else if (failure != null) {
+                        done.completeExceptionally(failure);
+                    } else {
+                        done.complete(null);
+                    }
+                } catch (RuntimeException e) {
+                    done.completeExceptionally(failure != null ? failure : e);
+                }
+            });
+        } catch (RuntimeException e) {
+            done.completeExceptionally(failure != null ? failure : e);
+        }
+    }
+    
+    /**
+     * Shows whether each game world can be reset.
+     *
+     * @param sender where to send the status
+     */
+    private void sendStatus(Audience sender) {
+        if (!enabled) {
+            sender.sendMessage(Component.text("World resets are turned off in the config."));
+        }
+        for (World world : getGameWorlds()) {
+            String name = world.getName();
+            String status;
+            if (pendingSnapshots.contains(name)) {
+                status = "template will be taken when the server starts";
+            } else if (pendingResets.contains(name)) {
+                status = "will be reset when the server starts";
+            } else if (!Files.isDirectory(templatesFolder.resolve(name))) {
+                status = "no template";
+            } else if (Files.isDirectory(getStagedFolder(world.getWorldFolder().toPath()))) {
+                status = "ready to reset";
+            } else {
+                status = "template is being copied next to the world";
+            }
+            sender.sendMessage(Component.text(name + ": " + status));
+        }
+    }
+    
+    /**
+     * Gets the worlds that are reset.
+     *
+     * @return every loaded world that isn't ignored
+     */
+    private List<World> getGameWorlds() {
+        return Bukkit.getWorlds().stream()
+                .filter(world -> !ignoredWorldKeys.contains(world.getKey())).toList();
+    }
+    
+    /**
+     * Checks if a world is the server's main world, which the server never unloads.
+     *
+     * @param world the world
+     * @return true if it is the main world
+     */
+    private static boolean isMainWorld(World world) {
+        return Bukkit.getWorlds().getFirst().equals(world);
+    }
+    
+    /**
+     * Gets the lock held while copying or swapping a world's files.
+     *
+     * @param name the name of the world
+     * @return the lock
+     */
+    private Object getWorldLock(String name) {
+        return worldLocks.computeIfAbsent(name, ignored -> new Object());
+    }
+    
+    /**
+     * Gets the lock held while a world's chunk data folders are being renamed. Holding it keeps
+     * the folder from {@link #getChunkDataFolder(String, Path)} where it is.
+     *
+     * @param name the name of the world
+     * @return the lock
+     */
+    Object getSwapLock(@NotNull String name) {
+        return swapLocks.computeIfAbsent(name, ignored -> new Object());
+    }
+    
+    /**
+     * Gets the folder the chunk data a world had when it was last held is in. That is the world
+     * folder, unless the world has been reset since, in which case it is the folder the chunk data
+     * was moved to.
+     *
+     * @param name        the name of the world
+     * @param worldFolder the folder of the world
+     * @return the folder to find the chunk data folders and level file in
+     */
+    @NotNull Path getChunkDataFolder(@NotNull String name, @NotNull Path worldFolder) {
+        return retiredFolders.getOrDefault(name, worldFolder);
+    }
+    
+    /**
+     * Keeps the chunk data swapped out of the worlds from being deleted until
+     * {@link #releaseRetired()} is called, so it can still be read after a reset.
+     */
+    synchronized void holdRetired() {
+        retiredHolds++;
+    }
+    
+    /**
+     * Lets go of the chunk data held by {@link #holdRetired()}, deleting it if nothing else holds
+     * it. Nothing is deleted if the calling thread was interrupted, since the leftovers are
+     * cleaned up the next time the plugin is enabled.
+     */
+    void releaseRetired() {
+        List<Path> released;
+        synchronized (this) {
+            if (--retiredHolds > 0) {
+                return;
+            }
+            released = List.copyOf(heldRetiredFolders);
+            heldRetiredFolders.clear();
+            retiredFolders.clear();
+        }
+        if (!Thread.currentThread().isInterrupted()) {
+            for (Path retired : released) {
+                discardRetired(retired);
+            }
+        }
+    }
+    
+    /**
+     * Deletes the chunk data left from earlier resets, and copies each template next to its
+     * world if it isn't there already. Runs off the server thread.
+     *
+     * @param worldContainer the folder the worlds are in
+     * @param worldFolders   the folder of each game world, by world name
+     */
+    private void prepare(Path worldContainer, Map<String, Path> worldFolders) {
+        try (Stream<Path> children = Files.list(worldContainer)) {
+            for (Path child : children.filter(path -> Files.isDirectory(path) &&
+                    path.getFileName().toString().contains(RETIRED_SUFFIX)).toList()) {
+                discardRetired(child);
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Could not look for chunk data left from earlier resets", e);
+        }
+        if (!enabled) {
+            return;
+        }
+        for (Map.Entry<String, Path> entry : worldFolders.entrySet()) {
+            String name = entry.getKey();
+            Path template = templatesFolder.resolve(name);
+            if (Files.isDirectory(template) &&
+                    !Files.isDirectory(getStagedFolder(entry.getValue()))) {
+                stageSafely(name, template, entry.getValue());
+            }
+        }
+    }
+    
+    /**
+     * Copies a template next to its world, logging any problem.
+     *
+     * @param name        the name of the world
+     * @param template    the template
+     * @param worldFolder the folder of the world
+     */
+    private void stageSafely(String name, Path template, Path worldFolder) {
+        synchronized (getWorldLock(name)) {
+            try {
+                stage(template, getStagedFolder(worldFolder));
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Could not copy the template of " + name +
+                        " next to it, the next reset will copy it instead", e);
+            }
+        }
+    }
+    
+    /**
+     * Deletes the chunk data swapped out of a world, logging any problem. If it is held, it is
+     * deleted once it is released instead.
+     *
+     * @param retired the folder the chunk data was moved to
+     */
+    private void discardRetired(Path retired) {
+        synchronized (this) {
+            if (retiredHolds > 0) {
+                heldRetiredFolders.add(retired);
+                return;
+            }
+        }
+        try {
+            deleteTree(retired);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Could not delete " + retired, e);
+        }
+    }
+    
+    /**
+     * Loads the worlds left to reset or take templates of, such as after a reload.
+     */
+    private void loadPending() {
+        if (!Files.exists(pendingFile)) {
+            return;
+        }
+        try {
+            YamlConfiguration pending = new YamlConfiguration();
+            pending.loadFromString(Files.readString(pendingFile, StandardCharsets.UTF_8));
+            pendingResets.addAll(pending.getStringList(RESETS_PATH));
+            pendingSnapshots.addAll(pending.getStringList(SNAPSHOTS_PATH));
+        } catch (IOException | InvalidConfigurationException e) {
+            logger.log(Level.WARNING, "Could not read " + pendingFile, e);
+        }
+    }
+    
+    /**
+     * Saves the worlds left to reset or take templates of off the server thread.
+     */
+    private void savePending() {
+        YamlConfiguration pending = new YamlConfiguration();
+        pending.set(RESETS_PATH, List.copyOf(pendingResets));
+        pending.set(SNAPSHOTS_PATH, List.copyOf(pendingSnapshots));
+        String contents = pending.saveToString();
+        Bukkit.getAsyncScheduler().runNow(plugin, ignored -> {
+            synchronized (writeLock) {
+                try {
+                    Files.createDirectories(pendingFile.getParent());
+                    Files.writeString(tempFile, contents, StandardCharsets.UTF_8);
+                    GameStatePersistence.move(tempFile, pendingFile);
+                } catch (IOException e) {
+                    logger.log(Level.SEVERE, "Could not save the worlds to reset", e);
+                }
+            }
+        });
+    }
+    
+    /**
+     * Gets the folder a world's template is copied to while it waits to be swapped in. It is next
+     * to the world, so the swap is a rename on the same disk.
+     *
+     * @param worldFolder the folder of the world
+     * @return the folder for the copy
+     */
+    private static Path getStagedFolder(Path worldFolder) {
+        return worldFolder.resolveSibling(worldFolder.getFileName() + STAGED_SUFFIX);
+    }
+    
+    /**
+     * Copies a world's chunk data into its template, replacing the old one once the copy is done.
+     *
+     * @param worldFolder the folder of the world, which must not be loaded
+     * @param template    the template
+     * @throws IOException if the files could not be copied
+     */
+    private static void takeTemplate(Path worldFolder, Path template) throws IOException {
+        Path temp = template.resolveSibling(template.getFileName() + TEMP_SUFFIX);
+        deleteTree(temp);
+        copyChunkData(worldFolder, temp);
+        deleteTree(template);
+        Files.createDirectories(template.getParent());
+        Files.move(temp, template);
+    }
+    
+    /**
+     * Copies a template to where it waits to be swapped in, replacing the old copy once the copy
+     * is done.
+     *
+     * @param template the template
+     * @param staged   where the copy goes
+     * @throws IOException if the files could not be copied
+     */
+    private static void stage(Path template, Path staged) throws IOException {
+        Path temp = staged.resolveSibling(staged.getFileName() + TEMP_SUFFIX);
+        deleteTree(temp);
+        copyChunkData(template, temp);
+        deleteTree(staged);
+        Files.move(temp, staged);
+    }
+    
+    /**
+     * Swaps a world's chunk data for a copy of its template. The old chunk data is moved to a
+     * folder next to the world rather than deleted, so the swap is only renames.
+     *
+     * @param worldFolder the folder of the world, which must not be loaded
+     * @param template    the template
+     * @return the folder the old chunk data was moved to
+     * @throws IOException if the files could not be moved
+     */
+    private static Path swap(Path worldFolder, Path template) throws IOException {
+        Path staged = getStagedFolder(worldFolder);
+        if (!Files.isDirectory(staged)) {
+            stage(template, staged);
+        }
+        Path retired = worldFolder.resolveSibling(worldFolder.getFileName() + RETIRED_SUFFIX +
+                Instant.now().getEpochSecond());
+        Set<Path> entries = new LinkedHashSet<>(findChunkFolders(worldFolder));
+        entries.addAll(findChunkFolders(staged));
+        entries.add(Path.of(LEVEL_FILE_NAME));
+        for (Path entry : entries) {
+            Path played = worldFolder.resolve(entry.toString());
+            if (Files.exists(played)) {
+                Path target = retired.resolve(entry.toString());
+                Files.createDirectories(target.getParent());
+                Files.move(played, target);
+            }
+            Path fresh = staged.resolve(entry.toString());
+            if (Files.exists(fresh)) {
+                Files.createDirectories(played.getParent());
+                Files.move(fresh, played);
+            }
+        }
+        deleteTree(staged);
+        return retired;
+    }
+    
+    /**
+     * Copies the chunk data folders and level file of a world.
+     *
+     * @param source the world or template to copy from
+     * @param target the folder to copy to, which must not exist
+     * @throws IOException if the files could not be copied
+     */
+    private static void copyChunkData(Path source, Path target) throws IOException {
+        Files.createDirectories(target);
+        for (Path folder : findChunkFolders(source)) {
+            copyTree(source.resolve(folder.toString()), target.resolve(folder.toString()));
+        }
+        Path level = source.resolve(LEVEL_FILE_NAME);
+        if (Files.exists(level)) {
+            Files.copy(level, target.resolve(LEVEL_FILE_NAME), StandardCopyOption.COPY_ATTRIBUTES);
+        }
+    }
+    
+    /**
+     * Finds the chunk data folders of a world.
+     *
+     * @param worldFolder the folder of the world
+     * @return the chunk data folders, relative to the world folder
+     * @throws IOException if the world folder could not be read
+     */
+    static @NotNull List<Path> findChunkFolders(@NotNull Path worldFolder) throws IOException {
+        if (!Files.isDirectory(worldFolder)) {
+            return List.of();
+        }
+        try (Stream<Path> folders = Files.find(worldFolder, CHUNK_FOLDER_DEPTH,
+                (path, attributes) -> attributes.isDirectory() &&
+                        CHUNK_FOLDER_NAMES.contains(path.getFileName().toString()))) {
+            return folders.map(worldFolder::relativize).toList();
+        }
+    }
+    
+    /**
+     * Copies a folder and everything in it. Region files are copied rather than hard linked,
+     * since the server writes to them in place and would change the template too.
+     *
+     * @param source the folder to copy
+     * @param target where to copy it to
+     * @throws IOException if the files could not be copied
+     */
+    private static void copyTree(Path source, Path target) throws IOException {
+        Files.walkFileTree(source, new SimpleFileVisitor<>() {
+            @Override
+            public @NotNull FileVisitResult preVisitDirectory(@NotNull Path dir,
+                                                              @NotNull BasicFileAttributes attrs)
+                    throws IOException {
+                Files.createDirectories(target.resolve(source.relativize(dir).toString()));
+                return FileVisitResult.CONTINUE;
+            }
+            
+            @Override
+            public @NotNull FileVisitResult visitFile(@NotNull Path file,
+                                                      @NotNull BasicFileAttributes attrs)
+                    throws IOException {
+                Files.copy(file, target.resolve(source.relativize(file).toString()),
+                        StandardCopyOption.COPY_ATTRIBUTES);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+    
+    /**
+     * Deletes a folder and everything in it, if it exists.
+     *
+     * @param folder the folder
+     * @throws IOException if the files could not be deleted
+     */
+    private static void deleteTree(Path folder) throws IOException {
+        if (!Files.exists(folder)) {
+            return;
+        }
+        Files.walkFileTree(folder, new SimpleFileVisitor<>() {
+            @Override
+            public @NotNull FileVisitResult visitFile(@NotNull Path file,
+                                                      @NotNull BasicFileAttributes attrs)
+                    throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+            
+            @Override
+            public @NotNull FileVisitResult postVisitDirectory(@NotNull Path dir, IOException exc)
+                    throws IOException {
+                if (exc != null) {
+                    throw exc;
+                }
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}